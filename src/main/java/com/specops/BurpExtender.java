@@ -22,6 +22,7 @@ public class BurpExtender implements BurpExtension {
         api.extension().registerUnloadingHandler(new ExtensionUnloadingHandler() {
             @Override
             public void extensionUnloaded() {
+                context.shutdown();
                 // Log to Burp's main output stream.
                 api.logging().logToOutput("SpecOps unloaded.");
             }
@@ -0,0 +1,185 @@
+package com.specops;
+
+import javax.swing.*;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Collects model change events and delivers them to every subscriber on the EDT, at most once per window.
+ * A burst such as a 5,000-value import reaches listeners as one ChangeSet naming everything that changed,
+ * instead of one synchronous callback per mutation.
+ */
+public class ChangeBus {
+
+    public enum Topic {
+        /** A new spec was loaded; everything else changed with it. */
+        SPEC,
+        ENDPOINTS,
+        PARAMETERS,
+        BINDINGS,
+        SERVERS,
+        /** Auth token values; servers and compiled templates are unaffected. */
+        AUTH
+    }
+
+    public interface Listener {
+        /** Called on the EDT. */
+        void onChange(ChangeSet changes);
+    }
+
+    /** Everything posted during one window. */
+    public static final class ChangeSet {
+        private final Set<Topic> topics;
+        private final Set<String> parameterKeys;
+        private final boolean allParameters;
+        private final boolean parameterKeySetChanged;
+
+        private ChangeSet(Set<Topic> topics, Set<String> parameterKeys, boolean allParameters, boolean parameterKeySetChanged) {
+            this.topics = topics;
+            this.parameterKeys = parameterKeys;
+            this.allParameters = allParameters;
+            this.parameterKeySetChanged = parameterKeySetChanged;
+        }
+
+        public boolean has(Topic topic) {
+            return topics.contains(topic);
+        }
+
+        /** Canonical keys of the parameters that changed; meaningless when {@link #allParameters()}. */
+        public Set<String> parameterKeys() {
+            return parameterKeys;
+        }
+
+        /** Some change did not say which parameters it touched, so any may have changed. */
+        public boolean allParameters() {
+            return allParameters;
+        }
+
+        /** Parameters were added or replaced, or that cannot be ruled out. */
+        public boolean parameterKeySetChanged() {
+            return parameterKeySetChanged;
+        }
+    }
+
+    static final long WINDOW_MS = 40;
+
+    private final Consumer<String> errorLog;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(
+            r -> Thread.ofPlatform().daemon().name("SpecOps-change-bus").unstarted(r));
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private EnumSet<Topic> pendingTopics = EnumSet.noneOf(Topic.class);
+    private Set<String> pendingKeys = new HashSet<>();
+    private boolean pendingAllParameters;
+    private boolean pendingKeySetChanged;
+    private boolean flushScheduled;
+    private volatile boolean shutdown;
+
+    /**
+     * @param errorLog receives exceptions thrown by listeners
+     */
+    public ChangeBus(Consumer<String> errorLog) {
+        this.errorLog = errorLog;
+    }
+
+    public void subscribe(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void post(Topic... topics) {
+        lock.lock();
+        try {
+            Collections.addAll(pendingTopics, topics);
+            if (List.of(topics).contains(Topic.PARAMETERS)) {
+                // Posted without keys; listeners must assume every parameter changed
+                pendingAllParameters = true;
+                pendingKeySetChanged = true;
+            }
+            scheduleFlush();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param keys          canonical keys of the parameters that changed, or null when not known
+     * @param keySetChanged parameters were added or replaced rather than only edited in place
+     */
+    public void postParameters(Collection<String> keys, boolean keySetChanged) {
+        lock.lock();
+        try {
+            pendingTopics.add(Topic.PARAMETERS);
+            if (keys == null) {
+                pendingAllParameters = true;
+                pendingKeySetChanged = true;
+            } else if (!pendingAllParameters) {
+                pendingKeys.addAll(keys);
+            }
+            pendingKeySetChanged |= keySetChanged;
+            scheduleFlush();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Drops pending events and subscribers; posts after this are ignored. */
+    public void shutdown() {
+        shutdown = true;
+        timer.shutdownNow();
+        listeners.clear();
+    }
+
+    private void scheduleFlush() {
+        if (flushScheduled || shutdown) return;
+        try {
+            timer.schedule(this::flush, WINDOW_MS, TimeUnit.MILLISECONDS);
+            flushScheduled = true;
+        } catch (RejectedExecutionException ignored) {
+            // shutting down
+        }
+    }
+
+    private void flush() {
+        ChangeSet changes;
+        lock.lock();
+        try {
+            flushScheduled = false;
+            if (pendingTopics.isEmpty()) return;
+            changes = new ChangeSet(
+                    Collections.unmodifiableSet(pendingTopics),
+                    pendingAllParameters ? Set.of() : Collections.unmodifiableSet(pendingKeys),
+                    pendingAllParameters,
+                    pendingKeySetChanged);
+            pendingTopics = EnumSet.noneOf(Topic.class);
+            pendingKeys = new HashSet<>();
+            pendingAllParameters = false;
+            pendingKeySetChanged = false;
+        } finally {
+            lock.unlock();
+        }
+        SwingUtilities.invokeLater(() -> deliver(changes));
+    }
+
+    private void deliver(ChangeSet changes) {
+        if (shutdown) return;
+        for (Listener l : listeners) {
+            try {
+                l.onChange(changes);
+            } catch (RuntimeException e) {
+                errorLog.accept("Change listener failed: " + e);
+            }
+        }
+    }
+}
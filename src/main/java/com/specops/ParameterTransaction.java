@@ -0,0 +1,73 @@
+package com.specops;
+
+import com.specops.domain.Parameter;
+
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A batch of parameter store changes applied all at once.
+ * Edits go to private working copies and inserts are held back until {@link #commit()}, which applies
+ * everything under the store lock, publishes one snapshot and posts one change event.
+ * Closing without committing discards the batch. Not thread-safe; use from one thread.
+ *
+ * <pre>{@code
+ * try (ParameterTransaction tx = context.beginParameterTransaction()) {
+ *     tx.edit(p).setValue("42");
+ *     tx.commit();
+ * }
+ * }</pre>
+ */
+public final class ParameterTransaction implements AutoCloseable {
+
+    private final SpecOpsContext context;
+    // Live instance -> working copy
+    private final Map<Parameter, Parameter> edits = new IdentityHashMap<>();
+    private final Map<String, Parameter> inserts = new LinkedHashMap<>();
+    private boolean finished;
+
+    ParameterTransaction(SpecOpsContext context) {
+        this.context = context;
+    }
+
+    /** Working copy of a stored parameter; changes to it are applied on commit. */
+    public Parameter edit(Parameter live) {
+        ensureOpen();
+        return edits.computeIfAbsent(live, Parameter::copy);
+    }
+
+    /** The parameter as this transaction sees it: the working copy if it was edited, else the live instance. */
+    public Parameter current(Parameter live) {
+        Parameter copy = edits.get(live);
+        return copy != null ? copy : live;
+    }
+
+    /** Stores a parameter under its canonical key on commit, replacing any entry there. */
+    public void put(Parameter p) {
+        ensureOpen();
+        if (p == null) return;
+        SpecOpsContext.normalizeParameterForStore(p);
+        inserts.put(SpecOpsContext.canonicalKey(p), p);
+    }
+
+    public boolean isEmpty() {
+        return edits.isEmpty() && inserts.isEmpty();
+    }
+
+    public void commit() {
+        ensureOpen();
+        finished = true;
+        if (!isEmpty()) context.commitParameters(edits, inserts);
+    }
+
+    /** Discards the batch unless it was committed. */
+    @Override
+    public void close() {
+        finished = true;
+    }
+
+    private void ensureOpen() {
+        if (finished) throw new IllegalStateException("Parameter transaction already finished");
+    }
+}
@@ -4,16 +4,22 @@ import burp.api.montoya.MontoyaApi;
 import com.specops.domain.AttackResult;
 import com.specops.domain.Endpoint;
 import com.specops.domain.Parameter;
+import com.specops.domain.ParameterIndex;
+import com.specops.domain.ParameterSnapshot;
+import com.specops.domain.SendSettings;
 import com.specops.domain.rules.HeaderRule;
 import io.swagger.v3.oas.models.OpenAPI;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
 
 /**
@@ -25,38 +31,52 @@ public class SpecOpsContext {
 
     private final List<Endpoint> endpoints;
     private final Map<String, Parameter> globalParameterStore;
+    private final ParameterIndex parameterIndex = new ParameterIndex();
     private final List<AttackResult> attackResults;
     private final List<HeaderRule> headerRules;
     private final Map<Integer, Map<String, String>> serverVariableOverrides;
     private final Map<String, String> authTokens;
+    private final SendSettings sendSettings;
 
-    private OpenAPI openAPI;
-    private String apiHost;
+    private volatile OpenAPI openAPI;
+    private volatile String apiHost;
+
+    // Bumped whenever something that compiled request templates derive from changes
+    private final AtomicLong specVersion = new AtomicLong();
+    private final AtomicLong serversVersion = new AtomicLong();
+    private final AtomicLong headerRulesVersion = new AtomicLong();
+    private final AtomicLong parameterKeysVersion = new AtomicLong();
+    private final AtomicLong authTokensVersion = new AtomicLong();
+
+    // Bumped on every parameter change; the snapshot is recopied on first use after a bump
+    private final AtomicLong parametersVersion = new AtomicLong();
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+    private volatile ParameterSnapshot parameterSnapshot;
 
     private volatile boolean headersApplyToWorkbench;
     private volatile int selectedServerIndex = 0;
     private volatile boolean iterateAcrossAllServers = false;
 
-    private Consumer<Void> endpointsUpdateListener;
-    private Consumer<Void> parametersUpdateListener;
-    private Consumer<Void> serversUpdateListener;
-    private Runnable bindingsUpdateListener; // Runnable by design (no arg needed)
+    private final ChangeBus changeBus;
     private Consumer<AttackResult> attackResultListener;
 
     public SpecOpsContext(MontoyaApi api) {
         this.api = api;
+        this.changeBus = new ChangeBus(msg -> api.logging().logToError(msg));
         this.endpoints = new CopyOnWriteArrayList<>();
         this.globalParameterStore = new ConcurrentHashMap<>();
         this.attackResults = Collections.synchronizedList(new ArrayList<>());
         this.headerRules = new CopyOnWriteArrayList<>();
         this.serverVariableOverrides = new ConcurrentHashMap<>();
         this.authTokens = new ConcurrentHashMap<>();
+        this.sendSettings = new SendSettings();
         this.headersApplyToWorkbench = false;
     }
 
     public OpenAPI getOpenAPI() { return openAPI; }
     public List<Endpoint> getEndpoints() { return endpoints; }
     public Map<String, Parameter> getGlobalParameterStore() { return globalParameterStore; }
+    public ParameterIndex getParameterIndex() { return parameterIndex; }
     public List<AttackResult> getAttackResults() { return attackResults; }
 
     public int getAttackResultCount() {
@@ -92,6 +112,7 @@ public class SpecOpsContext {
      */
     public void resetModel(OpenAPI openAPI, List<Endpoint> endpoints, Map<String, Parameter> parameters) {
         this.openAPI = openAPI;
+        specVersion.incrementAndGet();
 
         this.endpoints.clear();
         if (endpoints != null) this.endpoints.addAll(endpoints);
@@ -108,6 +129,8 @@ public class SpecOpsContext {
                 }
             }
         }
+        parameterIndex.rebuild(this.globalParameterStore.values());
+        parameterKeysVersion.incrementAndGet();
 
         clearAttackResults();
 
@@ -115,10 +138,11 @@ public class SpecOpsContext {
         this.serverVariableOverrides.clear();
         this.iterateAcrossAllServers = false;
 
-        notifyEndpointsChanged();
-        notifyParametersChanged();
-        notifyBindingsChanged();     // important: bindings/stat panels refresh on reset
-        notifyServersChanged();
+        parametersVersion.incrementAndGet();
+        serversVersion.incrementAndGet();
+        // important: bindings/stat panels refresh on reset
+        changeBus.post(ChangeBus.Topic.SPEC, ChangeBus.Topic.ENDPOINTS, ChangeBus.Topic.PARAMETERS,
+                ChangeBus.Topic.BINDINGS, ChangeBus.Topic.SERVERS);
 
         int endpointsCount = endpoints != null ? endpoints.size() : 0;
         int paramsCount = this.globalParameterStore.size();
@@ -129,19 +153,42 @@ public class SpecOpsContext {
         );
     }
 
-    /** Insert or update a single global parameter. */
-    public void upsertGlobalParameter(Parameter incoming, boolean overwriteLocked, Parameter.ValueSource sourceIfUpdate) {
-        if (incoming == null) return;
-        normalizeParameterForStore(incoming);
-        String key = canonicalKey(incoming);
-
-        globalParameterStore.merge(key, incoming, (existing, inc) -> {
-            mergeParameter(existing, inc, overwriteLocked, sourceIfUpdate);
-            return existing;
-        });
+    /** Starts a batch of parameter changes that become visible together when committed. */
+    public ParameterTransaction beginParameterTransaction() {
+        return new ParameterTransaction(this);
+    }
 
-        notifyParametersChanged();
-        notifyBindingsChanged(); // keep binding stats in sync with parameter mutations
+    /**
+     * Applies a transaction under the snapshot lock, so no snapshot is copied from a half-applied store,
+     * then posts a single keyed change event. The snapshot is recopied on its next use.
+     */
+    void commitParameters(Map<Parameter, Parameter> edits, Map<String, Parameter> inserts) {
+        List<String> changedKeys = new ArrayList<>(edits.size() + inserts.size());
+        boolean keySetChanged = false;
+        snapshotLock.lock();
+        try {
+            for (Map.Entry<Parameter, Parameter> e : edits.entrySet()) {
+                Parameter live = e.getKey();
+                live.assign(e.getValue());
+                parameterIndex.add(live);
+                changedKeys.add(canonicalKey(live));
+            }
+            for (Map.Entry<String, Parameter> e : inserts.entrySet()) {
+                Parameter p = e.getValue();
+                Parameter prev = globalParameterStore.put(e.getKey(), p);
+                if (prev == p) continue;
+                if (prev != null) parameterIndex.remove(prev);
+                parameterIndex.add(p);
+                changedKeys.add(e.getKey());
+                keySetChanged = true;
+            }
+            if (keySetChanged) parameterKeysVersion.incrementAndGet();
+            parametersVersion.incrementAndGet();
+        } finally {
+            snapshotLock.unlock();
+        }
+        // Binding status derives from parameter values, so subscribers treat the keys as covering bindings too
+        changeBus.postParameters(changedKeys, keySetChanged);
     }
 
     /** Canonical key: non-body -> "in:name", body -> "body:jsonPath" (array indices wildcarded). */
@@ -162,7 +209,7 @@ public class SpecOpsContext {
         return path.replaceAll("\\[\\d+\\]", "[]");
     }
 
-    private static void normalizeParameterForStore(Parameter p) {
+    static void normalizeParameterForStore(Parameter p) {
         if (p == null) return;
         if ("body".equalsIgnoreCase(nz(p.getIn()))) {
             String jp = p.getJsonPath();
@@ -227,57 +274,89 @@ public class SpecOpsContext {
         this.attackResultListener = listener;
     }
 
-    public void setEndpointsUpdateListener(Consumer<Void> listener) {
-        this.endpointsUpdateListener = listener;
+    /**
+     * Model change events for the UI. Subscribers are called on the EDT, once per burst of changes,
+     * so notifying from a background thread or in a loop is cheap.
+     */
+    public ChangeBus getChangeBus() {
+        return changeBus;
     }
 
-    public void setParametersUpdateListener(Consumer<Void> listener) {
-        this.parametersUpdateListener = listener;
+    /** Stops change delivery; called when the extension unloads. */
+    public void shutdown() {
+        changeBus.shutdown();
     }
 
-    public void setServersUpdateListener(Consumer<Void> listener) {
-        this.serversUpdateListener = listener;
+    public void notifyEndpointsChanged() {
+        changeBus.post(ChangeBus.Topic.ENDPOINTS);
     }
 
-    /** Bindings/stats panel; Runnable is fine since there’s no payload. */
-    public void setBindingsUpdateListener(Runnable r) {
-        this.bindingsUpdateListener = r;
+    /** Any parameter may have changed, including which parameters exist. */
+    public void notifyParametersChanged() {
+        parametersVersion.incrementAndGet();
+        changeBus.postParameters(null, true);
     }
 
     /**
-     * Invokes the endpoints listener on the calling thread.
-     * Swing listeners must dispatch UI mutations to the EDT.
+     * The parameters under these canonical keys were edited in place.
+     * Subscribers can update just those rows instead of reloading everything.
      */
-    public void notifyEndpointsChanged() {
-        if (endpointsUpdateListener != null) endpointsUpdateListener.accept(null);
+    public void notifyParametersChanged(Collection<String> keys) {
+        parametersVersion.incrementAndGet();
+        changeBus.postParameters(keys, false);
     }
 
-    /**
-     * Invokes the parameters listener on the calling thread.
-     * Swing listeners must dispatch UI mutations to the EDT.
-     */
-    public void notifyParametersChanged() {
-        if (parametersUpdateListener != null) parametersUpdateListener.accept(null);
+    public void notifyServersChanged() {
+        serversVersion.incrementAndGet();
+        changeBus.post(ChangeBus.Topic.SERVERS);
     }
 
     /**
-     * Invokes the server listener on the calling thread.
-     * Swing listeners must dispatch UI mutations to the EDT.
+     * Marks the header rules as edited so compiled request templates pick up the change.
      */
-    public void notifyServersChanged() {
-        if (serversUpdateListener != null) serversUpdateListener.accept(null);
+    public void notifyHeaderRulesChanged() {
+        headerRulesVersion.incrementAndGet();
     }
 
+    public long getSpecVersion() { return specVersion.get(); }
+    public long getServersVersion() { return serversVersion.get(); }
+    public long getHeaderRulesVersion() { return headerRulesVersion.get(); }
+
+    /** Bumped when a parameter is added to the store or replaced by another instance; value edits do not count. */
+    public long getParameterKeysVersion() { return parameterKeysVersion.get(); }
+    public long getAuthTokensVersion() { return authTokensVersion.get(); }
+
     /**
-     * Invokes the bindings listener on the calling thread.
-     * Swing listeners must dispatch UI mutations to the EDT.
+     * Immutable copy of the store as of the latest parameter change.
+     * Edits made in place must be followed by {@link #notifyParametersChanged()} to show up here.
      */
+    public ParameterSnapshot getParameterSnapshot() {
+        ParameterSnapshot snap = parameterSnapshot;
+        if (snap != null && snap.getVersion() == parametersVersion.get()) return snap;
+
+        snapshotLock.lock();
+        try {
+            // Read the versions before copying, so a change made during the copy forces another one
+            long version = parametersVersion.get();
+            snap = parameterSnapshot;
+            if (snap != null && snap.getVersion() == version) return snap;
+            snap = ParameterSnapshot.of(globalParameterStore, version, parameterKeysVersion.get());
+            parameterSnapshot = snap;
+            return snap;
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
     public void notifyBindingsChanged() {
-        if (bindingsUpdateListener != null) bindingsUpdateListener.run();
+        changeBus.post(ChangeBus.Topic.BINDINGS);
     }
 
     public String getApiHost() { return apiHost; }
-    public void setApiHost(String apiHost) { this.apiHost = apiHost; }
+    public void setApiHost(String apiHost) {
+        this.apiHost = apiHost;
+        serversVersion.incrementAndGet();
+    }
 
     public List<HeaderRule> getHeaderRules() { return headerRules; }
 
@@ -317,7 +396,8 @@ public class SpecOpsContext {
         } else {
             authTokens.put(schemeName, value);
         }
-        notifyServersChanged();
+        authTokensVersion.incrementAndGet();
+        changeBus.post(ChangeBus.Topic.AUTH);
     }
 
     public String getAuthToken(String schemeName) {
@@ -325,4 +405,6 @@ public class SpecOpsContext {
     }
 
     public Map<String, String> getAllAuthTokens() { return authTokens; }
+
+    public SendSettings getSendSettings() { return sendSettings; }
 }
@@ -13,12 +13,45 @@ public class AttackResult {
     private final HttpRequest request;
     private final HttpResponse response;
     private final String timestamp;
+    private final int sequence;
+    private final long responseTimeMillis;
+    private final int attempts;
+    private final long totalAttemptMillis;
 
     public AttackResult(Endpoint endpoint, HttpRequest request, HttpResponse response, String timestamp) {
+        this(endpoint, request, response, timestamp, -1, -1);
+    }
+
+    /**
+     * @param sequence           position of the request in the bulk send plan, or -1 when not part of a plan.
+     *                           Concurrent sends complete out of order, so this tag recovers plan order.
+     * @param responseTimeMillis wall-clock time spent sending, or -1 when not measured
+     */
+    public AttackResult(Endpoint endpoint, HttpRequest request, HttpResponse response, String timestamp,
+                        int sequence, long responseTimeMillis) {
+        this(endpoint, request, response, timestamp, sequence, responseTimeMillis, 1, responseTimeMillis);
+    }
+
+    private AttackResult(Endpoint endpoint, HttpRequest request, HttpResponse response, String timestamp,
+                         int sequence, long responseTimeMillis, int attempts, long totalAttemptMillis) {
         this.endpoint = endpoint;
         this.request = request;
         this.response = response;
         this.timestamp = timestamp;
+        this.sequence = sequence;
+        this.responseTimeMillis = responseTimeMillis;
+        this.attempts = attempts;
+        this.totalAttemptMillis = totalAttemptMillis;
+    }
+
+    /**
+     * Copy of this result, which is the final attempt, stamped with retry bookkeeping.
+     *
+     * @param totalAttemptMillis time from the first attempt to the end of this one, including backoff
+     */
+    public AttackResult withAttempts(int attempts, long totalAttemptMillis) {
+        return new AttackResult(endpoint, request, response, timestamp, sequence, responseTimeMillis,
+                attempts, totalAttemptMillis);
     }
 
     public Endpoint getEndpoint() {
@@ -37,6 +70,22 @@ public class AttackResult {
         return timestamp;
     }
 
+    public int getSequence() {
+        return sequence;
+    }
+
+    public long getResponseTimeMillis() {
+        return responseTimeMillis;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public long getTotalAttemptMillis() {
+        return totalAttemptMillis;
+    }
+
     public short getStatusCode() {
         return response != null ? response.statusCode() : -1;
     }
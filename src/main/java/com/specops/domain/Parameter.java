@@ -31,6 +31,34 @@ public class Parameter {
         this.type = type != null ? type : "string";
     }
 
+    /** Independent copy of every field, including the OpenAPI metadata. */
+    public Parameter copy() {
+        Parameter c = new Parameter(name, in, type);
+        c.value = value;
+        c.isLocked = isLocked;
+        c.source = source;
+        c.description = description;
+        c.defaultValue = defaultValue;
+        c.exampleValue = exampleValue;
+        c.enumValues = enumValues;
+        c.required = required;
+        c.jsonPath = jsonPath;
+        return c;
+    }
+
+    /** Overwrites every mutable field with those of another parameter; name, in and type are kept. */
+    public void assign(Parameter other) {
+        value = other.value;
+        isLocked = other.isLocked;
+        source = other.source;
+        description = other.description;
+        defaultValue = other.defaultValue;
+        exampleValue = other.exampleValue;
+        enumValues = other.enumValues;
+        required = other.required;
+        jsonPath = other.jsonPath;
+    }
+
     public String getUniqueKey() {
         if ("body".equalsIgnoreCase(in)) {
             String jp = getJsonPath();
@@ -0,0 +1,155 @@
+package com.specops.domain;
+
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Secondary indexes over the global parameter store, so request building can look parameters up
+ * instead of scanning the whole store for every spec parameter of every request.
+ * - (in, lowercase name) for path, query, header and cookie lookups
+ * - lowercase jsonPath for body overrides
+ * - top-level body key for applying overrides to a body with known top-level properties
+ * The index holds references, so value edits need no update; only adding, replacing or
+ * re-pathing a parameter does. Writers are serialized; readers are lock-free.
+ */
+public class ParameterIndex {
+
+    private final Map<String, List<Parameter>> byInName = new ConcurrentHashMap<>();
+    private final Map<String, List<Parameter>> bodyByJsonPath = new ConcurrentHashMap<>();
+    private final Map<String, List<Parameter>> bodyByTopKey = new ConcurrentHashMap<>();
+
+    // Keys each instance was filed under, so it can be unfiled after its jsonPath changes; writers only
+    private final Map<Parameter, IndexKeys> filed = new IdentityHashMap<>();
+
+    private record IndexKeys(String inName, String jsonPath, String topKey) {
+    }
+
+    public synchronized void rebuild(Collection<Parameter> params) {
+        byInName.clear();
+        bodyByJsonPath.clear();
+        bodyByTopKey.clear();
+        filed.clear();
+        for (Parameter p : params) {
+            if (p != null && !filed.containsKey(p)) addUnlocked(p, keysOf(p));
+        }
+    }
+
+    /** Indexes a parameter, replacing earlier entries for the same instance. */
+    public synchronized void add(Parameter p) {
+        if (p == null) return;
+        IndexKeys keys = keysOf(p);
+        if (keys.equals(filed.get(p))) return;
+        removeUnlocked(p);
+        addUnlocked(p, keys);
+    }
+
+    public synchronized void remove(Parameter p) {
+        if (p == null) return;
+        removeUnlocked(p);
+    }
+
+    /** First parameter with the given location and name, both compared case-insensitively. */
+    public Parameter find(String in, String name) {
+        if (in == null || name == null) return null;
+        List<Parameter> hits = byInName.get(inNameKey(in, name));
+        return hits == null || hits.isEmpty() ? null : hits.get(0);
+    }
+
+    /** All parameters with the given location and name, both compared case-insensitively. */
+    public List<Parameter> findAll(String in, String name) {
+        if (in == null || name == null) return List.of();
+        List<Parameter> hits = byInName.get(inNameKey(in, name));
+        return hits == null ? List.of() : hits;
+    }
+
+    /**
+     * Body parameters whose jsonPath matches, compared case-insensitively with array indices wildcarded.
+     */
+    public List<Parameter> findBodyByJsonPath(String jsonPath) {
+        List<Parameter> hits = bodyByJsonPath.get(pathKey(jsonPath));
+        return hits == null ? List.of() : hits;
+    }
+
+    /**
+     * Body parameters whose jsonPath starts with the given top-level key, parents before children.
+     * Root array paths such as "[].id" are filed under "[]".
+     */
+    public List<Parameter> bodyParamsUnder(String topKey) {
+        List<Parameter> hits = bodyByTopKey.get(topKey);
+        return hits == null ? List.of() : hits;
+    }
+
+    /** First segment of a jsonPath: "a" for "a.b[].c", "[]" for a root array path. */
+    public static String topKey(String jsonPath) {
+        if (jsonPath == null) return "";
+        int start = 0;
+        while (start < jsonPath.length() && jsonPath.charAt(start) == '.') start++;
+        if (start < jsonPath.length() && jsonPath.charAt(start) == '[') return "[]";
+        int end = start;
+        while (end < jsonPath.length() && jsonPath.charAt(end) != '.' && jsonPath.charAt(end) != '[') end++;
+        return jsonPath.substring(start, end);
+    }
+
+    private static IndexKeys keysOf(Parameter p) {
+        if (!"body".equalsIgnoreCase(p.getIn())) {
+            return new IndexKeys(inNameKey(p.getIn(), p.getName()), null, null);
+        }
+        String jp = p.getJsonPath();
+        return new IndexKeys(inNameKey(p.getIn(), p.getName()), pathKey(jp), topKey(jp));
+    }
+
+    private void addUnlocked(Parameter p, IndexKeys keys) {
+        filed.put(p, keys);
+        byInName.computeIfAbsent(keys.inName(), k -> new CopyOnWriteArrayList<>()).add(p);
+        if (keys.jsonPath() == null) return;
+
+        bodyByJsonPath.computeIfAbsent(keys.jsonPath(), k -> new CopyOnWriteArrayList<>()).add(p);
+
+        List<Parameter> siblings = bodyByTopKey.computeIfAbsent(keys.topKey(), k -> new CopyOnWriteArrayList<>());
+        // Keep shallower paths first so a whole-object override never clobbers a nested one
+        int depth = depth(p.getJsonPath());
+        int at = 0;
+        while (at < siblings.size() && depth(siblings.get(at).getJsonPath()) <= depth) at++;
+        siblings.add(at, p);
+    }
+
+    private void removeUnlocked(Parameter p) {
+        IndexKeys keys = filed.remove(p);
+        if (keys == null) return;
+        unfile(byInName, keys.inName(), p);
+        if (keys.jsonPath() != null) {
+            unfile(bodyByJsonPath, keys.jsonPath(), p);
+            unfile(bodyByTopKey, keys.topKey(), p);
+        }
+    }
+
+    private static void unfile(Map<String, List<Parameter>> index, String key, Parameter p) {
+        List<Parameter> list = index.get(key);
+        if (list == null) return;
+        list.removeIf(x -> x == p);
+        if (list.isEmpty()) index.remove(key);
+    }
+
+    private static int depth(String jsonPath) {
+        int d = 0;
+        for (int i = 0; i < jsonPath.length(); i++) {
+            char c = jsonPath.charAt(i);
+            if (c == '.' || c == '[') d++;
+        }
+        return d;
+    }
+
+    private static String inNameKey(String in, String name) {
+        return (in == null ? "" : in.toLowerCase(Locale.ROOT)) + ":" + (name == null ? "" : name.toLowerCase(Locale.ROOT));
+    }
+
+    private static String pathKey(String jsonPath) {
+        if (jsonPath == null) return "";
+        return jsonPath.replaceAll("\\[\\d+\\]", "[]").toLowerCase(Locale.ROOT);
+    }
+}
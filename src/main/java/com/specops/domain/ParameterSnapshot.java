@@ -0,0 +1,57 @@
+package com.specops.domain;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A point-in-time copy of the global parameter store with its own lookup index.
+ * Parameters are copied, so later edits to the live store never show through; treat them as read-only.
+ * A bulk run pins one snapshot, so every request it sends sees the same values,
+ * and builds read it without touching the live store the UI and scanners write to.
+ */
+public final class ParameterSnapshot {
+
+    private final long version;
+    private final long keysVersion;
+    private final Map<String, Parameter> store;
+    private final ParameterIndex index;
+
+    private ParameterSnapshot(long version, long keysVersion, Map<String, Parameter> store, ParameterIndex index) {
+        this.version = version;
+        this.keysVersion = keysVersion;
+        this.store = store;
+        this.index = index;
+    }
+
+    /**
+     * @param version     parameter version the copy reflects
+     * @param keysVersion key set version the copy reflects
+     */
+    public static ParameterSnapshot of(Map<String, Parameter> live, long version, long keysVersion) {
+        Map<String, Parameter> copy = new LinkedHashMap<>(Math.max(16, live.size() * 2));
+        for (Map.Entry<String, Parameter> e : live.entrySet()) {
+            if (e.getValue() != null) copy.put(e.getKey(), e.getValue().copy());
+        }
+        ParameterIndex index = new ParameterIndex();
+        index.rebuild(copy.values());
+        return new ParameterSnapshot(version, keysVersion, Collections.unmodifiableMap(copy), index);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public long getKeysVersion() {
+        return keysVersion;
+    }
+
+    /** Parameters by canonical key. */
+    public Map<String, Parameter> getStore() {
+        return store;
+    }
+
+    public ParameterIndex getIndex() {
+        return index;
+    }
+}
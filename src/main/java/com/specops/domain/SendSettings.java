@@ -0,0 +1,187 @@
+package com.specops.domain;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * User-tunable settings for bulk sends from the Endpoints Workbench.
+ * Fields are volatile because the sender reads them from worker threads.
+ */
+public class SendSettings {
+
+    public static final int DEFAULT_WORKER_COUNT = 8;
+    public static final int MAX_WORKER_COUNT = 64;
+
+    private volatile int workerCount = DEFAULT_WORKER_COUNT;
+
+    // Rate limiting per target service; a perSecond of 0 means unlimited
+    private volatile HostLimit defaultHostLimit = HostLimit.UNLIMITED;
+    private volatile Map<String, HostLimit> hostLimitOverrides = Map.of();
+
+    // When on, the worker count is a ceiling and each host's in-flight limit adapts to its responses
+    private volatile boolean adaptiveConcurrency = false;
+
+    private volatile RetryPolicy retryPolicy = RetryPolicy.DEFAULT;
+
+    public int getWorkerCount() {
+        return workerCount;
+    }
+
+    public void setWorkerCount(int workerCount) {
+        this.workerCount = Math.max(1, Math.min(workerCount, MAX_WORKER_COUNT));
+    }
+
+    public boolean isAdaptiveConcurrency() {
+        return adaptiveConcurrency;
+    }
+
+    public void setAdaptiveConcurrency(boolean adaptiveConcurrency) {
+        this.adaptiveConcurrency = adaptiveConcurrency;
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy == null ? RetryPolicy.DEFAULT : retryPolicy;
+    }
+
+    public HostLimit getDefaultHostLimit() {
+        return defaultHostLimit;
+    }
+
+    public void setDefaultHostLimit(HostLimit limit) {
+        this.defaultHostLimit = limit == null ? HostLimit.UNLIMITED : limit;
+    }
+
+    /** Overrides keyed by "host:port:scheme" or by bare host, all lowercase. */
+    public Map<String, HostLimit> getHostLimitOverrides() {
+        return hostLimitOverrides;
+    }
+
+    public void setHostLimitOverrides(Map<String, HostLimit> overrides) {
+        this.hostLimitOverrides = overrides == null ? Map.of() : Map.copyOf(overrides);
+    }
+
+    /**
+     * Parses one override per line in the form {@code host[:port:scheme] = rps[/burst]}.
+     * Blank lines and lines starting with # are ignored.
+     *
+     * @throws IllegalArgumentException on the first malformed line
+     */
+    public static Map<String, HostLimit> parseHostLimitOverrides(String text) {
+        Map<String, HostLimit> out = new LinkedHashMap<>();
+        if (text == null) return out;
+
+        String[] lines = text.split("\\R");
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i].trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+
+            int eq = line.indexOf('=');
+            if (eq <= 0 || eq == line.length() - 1) {
+                throw new IllegalArgumentException("Line " + (i + 1) + ": expected host = rps[/burst]");
+            }
+            String key = line.substring(0, eq).trim().toLowerCase(Locale.ROOT);
+            String spec = line.substring(eq + 1).trim();
+            try {
+                out.put(key, HostLimit.parse(spec));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Line " + (i + 1) + ": invalid rate '" + spec + "'", e);
+            }
+        }
+        return out;
+    }
+
+    public static String formatHostLimitOverrides(Map<String, HostLimit> overrides) {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, HostLimit> e : overrides.entrySet()) {
+            sb.append(e.getKey()).append(" = ").append(e.getValue().format()).append("\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Token bucket parameters for one target.
+     *
+     * @param perSecond sustained requests per second, 0 for unlimited
+     * @param burst     requests that may be sent back to back after an idle period
+     */
+    public record HostLimit(double perSecond, int burst) {
+        public static final HostLimit UNLIMITED = new HostLimit(0, 1);
+
+        public HostLimit {
+            perSecond = Math.max(0, perSecond);
+            burst = Math.max(1, burst);
+        }
+
+        public boolean isUnlimited() {
+            return perSecond <= 0;
+        }
+
+        static HostLimit parse(String spec) {
+            int slash = spec.indexOf('/');
+            double rps = Double.parseDouble((slash >= 0 ? spec.substring(0, slash) : spec).trim());
+            int burst = slash >= 0 ? Integer.parseInt(spec.substring(slash + 1).trim()) : 1;
+            return new HostLimit(rps, burst);
+        }
+
+        String format() {
+            String rps = perSecond == Math.rint(perSecond)
+                    ? String.valueOf((long) perSecond)
+                    : String.valueOf(perSecond);
+            return rps + "/" + burst;
+        }
+    }
+
+    /**
+     * Which failed sends are retried and how long to wait between attempts.
+     * Delays use exponential backoff with full jitter: a uniform pick between 0 and
+     * min(maxDelay, baseDelay * 2^(attempt-1)), so workers that failed together do not retry together.
+     * A Retry-After header, when present, sets the minimum delay; one asking for more than maxDelay
+     * ends the retries for that request instead. Retries are off by default.
+     *
+     * @param maxAttempts           total attempts including the first, 1 disables retries
+     * @param retryConnectionErrors retry when no response arrived
+     * @param retryGatewayErrors    retry on 502, 503 and 504
+     * @param retryTooManyRequests  retry on 429 when the response carries Retry-After
+     */
+    public record RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis,
+                              boolean retryConnectionErrors, boolean retryGatewayErrors,
+                              boolean retryTooManyRequests) {
+        public static final int MAX_ATTEMPTS = 10;
+        public static final RetryPolicy DEFAULT = new RetryPolicy(1, 500, 10_000, true, true, true);
+
+        public RetryPolicy {
+            maxAttempts = Math.max(1, Math.min(maxAttempts, MAX_ATTEMPTS));
+            baseDelayMillis = Math.max(0, baseDelayMillis);
+            maxDelayMillis = Math.max(baseDelayMillis, maxDelayMillis);
+        }
+
+        /**
+         * @param statusCode       response status, or a negative value when no response arrived
+         * @param retryAfterMillis Retry-After delay from the response, or a negative value when absent
+         */
+        public boolean isRetryable(int statusCode, long retryAfterMillis) {
+            if (statusCode < 0) return retryConnectionErrors;
+            if (statusCode == 429) return retryTooManyRequests && retryAfterMillis >= 0;
+            return retryGatewayErrors && (statusCode == 502 || statusCode == 503 || statusCode == 504);
+        }
+
+        /**
+         * @param failedAttempt 1-based number of the attempt that just failed
+         * @param retryAfterMillis delay requested by the server, or a negative value when absent
+         * @return the delay, or -1 when the server asks to wait longer than maxDelay and the request should not be retried
+         */
+        public long delayMillis(int failedAttempt, long retryAfterMillis) {
+            if (retryAfterMillis > maxDelayMillis) return -1;
+            int shift = Math.min(failedAttempt - 1, 30);
+            long ceiling = Math.min(maxDelayMillis, baseDelayMillis << shift);
+            long jittered = ceiling <= 0 ? 0 : ThreadLocalRandom.current().nextLong(ceiling + 1);
+            return Math.max(jittered, retryAfterMillis);
+        }
+    }
+}
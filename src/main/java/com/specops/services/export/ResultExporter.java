@@ -41,7 +41,7 @@ public final class ResultExporter {
     }
 
     private static void writeCsvHeader(BufferedWriter writer, boolean includePayloads) throws IOException {
-        writer.write("timestamp,method,path,status_code,response_length");
+        writer.write("timestamp,method,path,status_code,response_length,response_time_ms,attempts,total_attempt_ms");
         if (includePayloads) {
             writer.write(",request,response");
         }
@@ -59,6 +59,12 @@ public final class ResultExporter {
         writer.write(String.valueOf(result.getStatusCode()));
         writer.write(",");
         writer.write(String.valueOf(result.getResponseLength()));
+        writer.write(",");
+        writer.write(String.valueOf(result.getResponseTimeMillis()));
+        writer.write(",");
+        writer.write(String.valueOf(result.getAttempts()));
+        writer.write(",");
+        writer.write(String.valueOf(result.getTotalAttemptMillis()));
         if (includePayloads) {
             writer.write(",");
             writer.write(csvField(requestText(result)));
@@ -80,7 +86,13 @@ public final class ResultExporter {
         writer.newLine();
         writer.write("    \"statusCode\": " + result.getStatusCode() + ",");
         writer.newLine();
-        writer.write("    \"responseLength\": " + result.getResponseLength());
+        writer.write("    \"responseLength\": " + result.getResponseLength() + ",");
+        writer.newLine();
+        writer.write("    \"responseTimeMillis\": " + result.getResponseTimeMillis() + ",");
+        writer.newLine();
+        writer.write("    \"attempts\": " + result.getAttempts() + ",");
+        writer.newLine();
+        writer.write("    \"totalAttemptMillis\": " + result.getTotalAttemptMillis());
         if (includePayloads) {
             writer.write(",");
             writer.newLine();
@@ -0,0 +1,122 @@
+package com.specops.services.request;
+
+import io.swagger.v3.oas.models.security.SecurityRequirement;
+import io.swagger.v3.oas.models.security.SecurityScheme;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * What auth to inject into requests for one endpoint, worked out from its security requirements,
+ * the spec's schemes and the tokens set on the Auth tab. Requirements are alternatives, so the first
+ * one with usable tokens wins; with none, every API key scheme that has a token is applied.
+ * Headers/cookies and query parameters each pick their requirement independently.
+ * Stamped with the token version it was built against.
+ */
+final class AuthPlan {
+
+    enum Target {HEADER, COOKIE, QUERY}
+
+    /** One value to set: a header or cookie is replaced, a query parameter is added. */
+    record Injection(Target target, String name, String value) {
+    }
+
+    final long tokensVersion;
+    final List<Injection> headersAndCookies;
+    final List<Injection> queryParams;
+
+    /** Query parameters supplied by the auth requirement; spec query parameters of the same name are skipped. */
+    final Set<String> reservedQueryNames;
+
+    private AuthPlan(long tokensVersion, List<Injection> headersAndCookies, List<Injection> queryParams,
+                     Set<String> reservedQueryNames) {
+        this.tokensVersion = tokensVersion;
+        this.headersAndCookies = headersAndCookies;
+        this.queryParams = queryParams;
+        this.reservedQueryNames = reservedQueryNames;
+    }
+
+    /**
+     * @param schemes the spec's security schemes, or null
+     * @param tokens  token per scheme name; blank or null means not set
+     */
+    static AuthPlan compile(List<SecurityRequirement> reqs, Map<String, SecurityScheme> schemes,
+                            Function<String, String> tokens, long tokensVersion) {
+        if (schemes == null) return new AuthPlan(tokensVersion, List.of(), List.of(), Set.of());
+
+        List<Injection> headers = null;
+        List<Injection> query = null;
+        Set<String> reserved = new LinkedHashSet<>();
+
+        if (reqs != null) {
+            for (SecurityRequirement r : reqs) {
+                List<Injection> h = new ArrayList<>();
+                List<Injection> q = new ArrayList<>();
+                for (String schemeName : r.keySet()) {
+                    SecurityScheme scheme = schemes.get(schemeName);
+                    if (scheme == null) continue;
+                    String token = tokens.apply(schemeName);
+                    if (token == null || token.isBlank()) continue;
+                    addForRequirement(scheme, token, h, q);
+                }
+                for (Injection i : q) reserved.add(i.name());
+                // OR across requirement objects: satisfy the first one we can
+                if (headers == null && !h.isEmpty()) headers = h;
+                if (query == null && !q.isEmpty()) query = q;
+            }
+        }
+
+        // Fallback: apply every API key we hold a token for
+        if (headers == null || query == null) {
+            List<Injection> h = new ArrayList<>();
+            List<Injection> q = new ArrayList<>();
+            for (Map.Entry<String, SecurityScheme> e : schemes.entrySet()) {
+                SecurityScheme scheme = e.getValue();
+                if (scheme == null || scheme.getType() != SecurityScheme.Type.APIKEY) continue;
+                String token = tokens.apply(e.getKey());
+                if (token == null || token.isBlank()) continue;
+                addApiKey(scheme, token, h, q);
+            }
+            if (headers == null) headers = h;
+            if (query == null) query = q;
+        }
+
+        return new AuthPlan(tokensVersion, List.copyOf(headers), List.copyOf(query), Set.copyOf(reserved));
+    }
+
+    private static void addForRequirement(SecurityScheme scheme, String token, List<Injection> headers, List<Injection> query) {
+        if (scheme.getType() == null) return;
+        switch (scheme.getType()) {
+            case APIKEY -> addApiKey(scheme, token, headers, query);
+            case HTTP -> {
+                String schemeNameLc = scheme.getScheme() == null ? "" : scheme.getScheme().toLowerCase(Locale.ROOT);
+                if ("bearer".equals(schemeNameLc)) {
+                    headers.add(new Injection(Target.HEADER, "Authorization", "Bearer " + token));
+                } else if ("basic".equals(schemeNameLc)) {
+                    headers.add(new Injection(Target.HEADER, "Authorization", "Basic " + token));
+                }
+            }
+            case OAUTH2, OPENIDCONNECT -> headers.add(new Injection(Target.HEADER, "Authorization", "Bearer " + token));
+            default -> {
+                // unsupported types ignored safely
+            }
+        }
+    }
+
+    private static void addApiKey(SecurityScheme scheme, String token, List<Injection> headers, List<Injection> query) {
+        String name = scheme.getName() != null ? scheme.getName() : "api_key";
+        SecurityScheme.In in = scheme.getIn();
+        if (in == SecurityScheme.In.HEADER) {
+            headers.add(new Injection(Target.HEADER, name, token));
+        } else if (in == SecurityScheme.In.COOKIE) {
+            headers.add(new Injection(Target.COOKIE, name, token));
+        } else if (in == SecurityScheme.In.QUERY) {
+            query.add(new Injection(Target.QUERY, name, token));
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.specops.services.request;
+
+import com.specops.domain.Parameter;
+import com.specops.domain.rules.HeaderRule;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A HeaderRule compiled for request building: its scope with the match text normalized once,
+ * and the value split into literal text and ${param.*} references.
+ * References are bound to store keys, so editing a parameter value needs no recompile.
+ */
+final class CompiledHeaderRule {
+
+    private static final String REF_OPEN = "${param.";
+
+    final HeaderRule source;
+    final String name;
+    final boolean overwrite;
+
+    private final HeaderRule.Scope scope;
+    private final String match;
+
+    // literals[i] precedes refs[i]; there is one more literal than references
+    private final String[] literals;
+    private final String[] refs;
+
+    CompiledHeaderRule(HeaderRule rule) {
+        this.source = rule;
+        this.name = rule.name;
+        this.overwrite = rule.overwrite;
+        this.scope = rule.scope;
+        this.match = rule.scope == HeaderRule.Scope.PATH_PREFIX ? normalizePrefix(rule.match) : rule.match;
+
+        List<String> lit = new ArrayList<>();
+        List<String> ref = new ArrayList<>();
+        String value = rule.value == null ? "" : rule.value;
+        int from = 0;
+        while (true) {
+            int open = value.indexOf(REF_OPEN, from);
+            int close = open < 0 ? -1 : value.indexOf('}', open + REF_OPEN.length());
+            if (close < 0) break;
+            lit.add(value.substring(from, open));
+            ref.add(value.substring(open + REF_OPEN.length(), close));
+            from = close + 1;
+        }
+        lit.add(value.substring(from));
+        this.literals = lit.toArray(new String[0]);
+        this.refs = ref.toArray(new String[0]);
+    }
+
+    HeaderRule.Scope scope() {
+        return scope;
+    }
+
+    /** Match text; for PATH_PREFIX trimmed and with a leading slash, empty meaning every path. */
+    String match() {
+        return match;
+    }
+
+    void collectReferences(Set<String> out) {
+        for (String r : refs) out.add(r);
+    }
+
+    /**
+     * @param store parameters by canonical key
+     * @param bound canonical key per reference; an unbound reference is left in the value as written
+     */
+    String render(Map<String, Parameter> store, Map<String, String> bound) {
+        if (refs.length == 0) return literals[0];
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < refs.length; i++) {
+            sb.append(literals[i]);
+            String key = bound.get(refs[i]);
+            Parameter p = key == null ? null : store.get(key);
+            if (p == null) {
+                sb.append(REF_OPEN).append(refs[i]).append('}');
+            } else if (p.getValue() != null) {
+                sb.append(p.getValue());
+            }
+        }
+        return sb.append(literals[refs.length]).toString();
+    }
+
+    static String normalizePath(String path) {
+        String p = path == null ? "" : path.trim();
+        return p.startsWith("/") ? p : "/" + p;
+    }
+
+    private static String normalizePrefix(String prefix) {
+        String m = prefix == null ? "" : prefix.trim();
+        return !m.isEmpty() && !m.startsWith("/") ? "/" + m : m;
+    }
+}
@@ -0,0 +1,125 @@
+package com.specops.services.request;
+
+import com.specops.domain.Endpoint;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Finds the header rules whose scope covers an endpoint without testing every rule.
+ * HOST, METHOD and TAG rules are hashed by their match text; PATH_PREFIX rules sit in a character trie
+ * walked along the endpoint path, since a prefix need not end on a segment boundary.
+ * Candidates come back in rule order, so later rules still see the headers earlier ones added.
+ */
+final class HeaderRuleIndex {
+
+    private final List<CompiledHeaderRule> rules;
+
+    // Rule positions per bucket, ascending
+    private final int[] always;
+    private final Map<String, int[]> byHost;
+    private final Map<String, int[]> byMethod;
+    private final Map<String, int[]> byTag;
+    private final PrefixNode prefixes;
+
+    private static final class PrefixNode {
+        final Map<Character, PrefixNode> children = new HashMap<>();
+        int[] rules = new int[0];
+    }
+
+    HeaderRuleIndex(List<CompiledHeaderRule> rules) {
+        this.rules = rules;
+        List<Integer> all = new ArrayList<>();
+        Map<String, List<Integer>> host = new HashMap<>();
+        Map<String, List<Integer>> method = new HashMap<>();
+        Map<String, List<Integer>> tag = new HashMap<>();
+        this.prefixes = new PrefixNode();
+
+        for (int i = 0; i < rules.size(); i++) {
+            CompiledHeaderRule r = rules.get(i);
+            if (r.scope() == null) continue;
+            String m = r.match();
+            switch (r.scope()) {
+                case ALL -> all.add(i);
+                case HOST -> {
+                    if (m != null) host.computeIfAbsent(m.toLowerCase(Locale.ROOT), k -> new ArrayList<>()).add(i);
+                }
+                case METHOD -> {
+                    if (m != null) method.computeIfAbsent(m.toUpperCase(Locale.ROOT), k -> new ArrayList<>()).add(i);
+                }
+                case TAG -> {
+                    if (m != null) tag.computeIfAbsent(m, k -> new ArrayList<>()).add(i);
+                }
+                case PATH_PREFIX -> {
+                    PrefixNode node = prefixes;
+                    for (int c = 0; c < m.length(); c++) {
+                        node = node.children.computeIfAbsent(m.charAt(c), k -> new PrefixNode());
+                    }
+                    node.rules = append(node.rules, i);
+                }
+            }
+        }
+        this.always = toArray(all);
+        this.byHost = freeze(host);
+        this.byMethod = freeze(method);
+        this.byTag = freeze(tag);
+    }
+
+    /** Rules whose scope covers the endpoint on the given host, in rule order. */
+    List<CompiledHeaderRule> matching(Endpoint endpoint, String host) {
+        int[] hits = new int[rules.size()];
+        int n = copy(always, hits, 0);
+        if (host != null) n = copy(byHost.get(host.toLowerCase(Locale.ROOT)), hits, n);
+        if (endpoint.getMethod() != null) {
+            n = copy(byMethod.get(endpoint.getMethod().toString().toUpperCase(Locale.ROOT)), hits, n);
+        }
+        if (endpoint.getOperation() != null && endpoint.getOperation().getTags() != null) {
+            List<String> tags = endpoint.getOperation().getTags();
+            for (int t = 0; t < tags.size(); t++) {
+                // An operation may list the same tag twice; each rule must come back once
+                if (tags.indexOf(tags.get(t)) != t) continue;
+                n = copy(byTag.get(tags.get(t)), hits, n);
+            }
+        }
+
+        String path = CompiledHeaderRule.normalizePath(endpoint.getPath());
+        PrefixNode node = prefixes;
+        n = copy(node.rules, hits, n);
+        for (int c = 0; c < path.length() && node != null; c++) {
+            node = node.children.get(path.charAt(c));
+            if (node != null) n = copy(node.rules, hits, n);
+        }
+
+        if (n == 0) return List.of();
+        Arrays.sort(hits, 0, n);
+        List<CompiledHeaderRule> out = new ArrayList<>(n);
+        for (int k = 0; k < n; k++) out.add(rules.get(hits[k]));
+        return out;
+    }
+
+    private static int copy(int[] from, int[] to, int at) {
+        if (from == null) return at;
+        System.arraycopy(from, 0, to, at, from.length);
+        return at + from.length;
+    }
+
+    private static int[] append(int[] a, int v) {
+        int[] out = Arrays.copyOf(a, a.length + 1);
+        out[a.length] = v;
+        return out;
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        return list.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static Map<String, int[]> freeze(Map<String, List<Integer>> buckets) {
+        Map<String, int[]> out = new HashMap<>();
+        buckets.forEach((k, v) -> out.put(k, toArray(v)));
+        return out;
+    }
+}
@@ -0,0 +1,77 @@
+package com.specops.services.request;
+
+import com.specops.domain.Endpoint;
+import com.specops.domain.Parameter;
+import com.specops.domain.rules.HeaderRule;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The enabled header rules compiled once per edit of the Headers tab, in rule order.
+ * ${param.*} references are bound to canonical store keys once per change of the store key set.
+ */
+final class HeaderRuleSet {
+
+    final long version;
+    private final HeaderRuleIndex index;
+    private final Set<String> references;
+    private volatile Bindings bindings;
+
+    private record Bindings(long keysVersion, Map<String, String> byRef) {
+    }
+
+    private HeaderRuleSet(long version, List<CompiledHeaderRule> rules, Set<String> references) {
+        this.version = version;
+        this.index = new HeaderRuleIndex(rules);
+        this.references = references;
+    }
+
+    static HeaderRuleSet compile(List<HeaderRule> source, long version) {
+        List<CompiledHeaderRule> rules = new ArrayList<>();
+        Set<String> references = new HashSet<>();
+        for (HeaderRule r : source) {
+            if (r == null || !r.enabled) continue;
+            if (r.name == null || r.name.trim().isEmpty()) continue;
+            // Guardrails for dangerous or managed headers
+            if (RequestFactory.isManagedHeader(r.name.toLowerCase(Locale.ROOT))) continue;
+            CompiledHeaderRule c = new CompiledHeaderRule(r);
+            c.collectReferences(references);
+            rules.add(c);
+        }
+        return new HeaderRuleSet(version, List.copyOf(rules), Set.copyOf(references));
+    }
+
+    /** Rules whose scope covers the endpoint on the given host, in rule order. */
+    List<CompiledHeaderRule> matching(Endpoint endpoint, String host) {
+        return index.matching(endpoint, host);
+    }
+
+    /**
+     * Canonical store key for every reference the rules make. A reference is a canonical key
+     * such as "query:id", or else a simple parameter name, where the first match in the store wins.
+     */
+    Map<String, String> bindings(Map<String, Parameter> store, long keysVersion) {
+        Bindings b = bindings;
+        if (b != null && b.keysVersion() == keysVersion) return b.byRef();
+
+        Map<String, String> byRef = new HashMap<>();
+        if (!references.isEmpty()) {
+            for (String ref : references) {
+                if (store.containsKey(ref)) byRef.put(ref, ref);
+            }
+            for (Map.Entry<String, Parameter> e : store.entrySet()) {
+                Parameter p = e.getValue();
+                if (p == null || p.getName() == null || p.getName().isEmpty()) continue;
+                if (references.contains(p.getName())) byRef.putIfAbsent(p.getName(), e.getKey());
+            }
+        }
+        bindings = new Bindings(keysVersion, byRef);
+        return byRef;
+    }
+}
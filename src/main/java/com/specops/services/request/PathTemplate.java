@@ -0,0 +1,93 @@
+package com.specops.services.request;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * An endpoint path split once into literal text and {name} placeholders, each tied to the path
+ * parameter slot that fills it. Rendering appends literals and percent-encoded values straight into
+ * the caller's builder. Placeholders without a matching path parameter stay as written.
+ */
+final class PathTemplate {
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    // literals[i] precedes the value of slots[i]; there is one more literal than placeholders
+    private final String[] literals;
+    private final int[] slots;
+
+    private PathTemplate(String[] literals, int[] slots) {
+        this.literals = literals;
+        this.slots = slots;
+    }
+
+    /**
+     * @param slotNames path parameter names in slot order; a name listed twice fills from its first slot
+     */
+    static PathTemplate compile(String path, List<String> slotNames) {
+        String p = path == null ? "" : path;
+        List<String> lit = new ArrayList<>();
+        List<Integer> idx = new ArrayList<>();
+        StringBuilder pending = new StringBuilder();
+        int from = 0;
+        while (true) {
+            int open = p.indexOf('{', from);
+            int close = open < 0 ? -1 : p.indexOf('}', open + 1);
+            if (close < 0) break;
+            int slot = slotNames.indexOf(p.substring(open + 1, close));
+            pending.append(p, from, slot < 0 ? close + 1 : open);
+            if (slot >= 0) {
+                lit.add(pending.toString());
+                idx.add(slot);
+                pending.setLength(0);
+            }
+            from = close + 1;
+        }
+        lit.add(pending.append(p, from, p.length()).toString());
+        return new PathTemplate(lit.toArray(new String[0]), idx.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    /**
+     * @param valueOfSlot raw value for a slot index; encoded as a path segment when appended
+     */
+    void appendTo(StringBuilder out, IntFunction<String> valueOfSlot) {
+        for (int i = 0; i < slots.length; i++) {
+            out.append(literals[i]);
+            appendEncodedSegment(out, valueOfSlot.apply(slots[i]));
+        }
+        out.append(literals[slots.length]);
+    }
+
+    /** Percent-encodes everything but RFC 3986 unreserved characters, as UTF-8. */
+    static void appendEncodedSegment(StringBuilder out, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_' || c == '.' || c == '~') {
+                out.append(c);
+            } else if (c < 0x80) {
+                appendByte(out, c);
+            } else if (c < 0x800) {
+                appendByte(out, 0xC0 | (c >> 6));
+                appendByte(out, 0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                appendByte(out, 0xF0 | (cp >> 18));
+                appendByte(out, 0x80 | ((cp >> 12) & 0x3F));
+                appendByte(out, 0x80 | ((cp >> 6) & 0x3F));
+                appendByte(out, 0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                appendByte(out, '?'); // unpaired surrogate, as String.getBytes would encode it
+            } else {
+                appendByte(out, 0xE0 | (c >> 12));
+                appendByte(out, 0x80 | ((c >> 6) & 0x3F));
+                appendByte(out, 0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    private static void appendByte(StringBuilder out, int b) {
+        out.append('%').append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+    }
+}
@@ -1,12 +1,12 @@
 package com.specops.services.request;
 
-import burp.api.montoya.http.HttpService;
 import burp.api.montoya.http.message.HttpHeader;
 import burp.api.montoya.http.message.requests.HttpRequest;
 import com.specops.SpecOpsContext;
 import com.specops.domain.Endpoint;
 import com.specops.domain.Parameter;
-import com.specops.domain.rules.HeaderRule;
+import com.specops.domain.ParameterIndex;
+import com.specops.domain.ParameterSnapshot;
 import io.swagger.v3.core.util.Json;
 import io.swagger.v3.oas.models.examples.Example;
 import io.swagger.v3.oas.models.media.ArraySchema;
@@ -18,29 +18,47 @@ import io.swagger.v3.oas.models.security.SecurityRequirement;
 import io.swagger.v3.oas.models.security.SecurityScheme;
 import io.swagger.v3.oas.models.servers.Server;
 
-import java.net.MalformedURLException;
-import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
-import static burp.api.montoya.http.HttpService.httpService;
 import static burp.api.montoya.http.message.HttpHeader.httpHeader;
 import static burp.api.montoya.http.message.params.HttpParameter.urlParameter;
 
 /**
  * Service class for constructing a real-world HttpRequest from an Endpoint object.
+ * Spec-derived structure is compiled once per endpoint into a RequestTemplate,
+ * so each build only resolves store values and auth tokens.
  */
 public class RequestFactory {
 
     private final SpecOpsContext context;
 
+    // Everything compiled from the current spec; replaced as a whole when a new spec is loaded
+    private final AtomicReference<Compiled> compiled = new AtomicReference<>(new Compiled(-1));
+    private volatile ServerSnapshot serverSnapshot;
+    private volatile HeaderRuleSet headerRuleSet;
+
     public RequestFactory(SpecOpsContext context) {
         this.context = context;
     }
 
     public HttpRequest buildRequest(Endpoint endpoint) {
-        Map<String, Parameter> paramStore = context.getGlobalParameterStore();
+        return buildRequest(endpoint, context.getParameterSnapshot());
+    }
+
+    /**
+     * @param parameters store values to build from; a bulk run passes the snapshot it pinned at start
+     */
+    public HttpRequest buildRequest(Endpoint endpoint, ParameterSnapshot parameters) {
+        return buildRequest(endpoint, currentServers(), parameters);
+    }
+
+    private HttpRequest buildRequest(Endpoint endpoint, ServerSnapshot servers, ParameterSnapshot parameters) {
+        Map<String, Parameter> paramStore = parameters.getStore();
+        ParameterIndex params = parameters.getIndex();
 
         if (context.getOpenAPI() == null
                 || context.getOpenAPI().getServers() == null
@@ -49,72 +67,38 @@ public class RequestFactory {
             return null;
         }
 
-        // Resolve server URLs from context. For a single request build, first resolved URL.
-        List<String> serverUrls = resolveServerBaseUrls();
-        if (serverUrls.isEmpty()) {
-            context.api.logging().logToError("Cannot build request: no server URLs resolved.");
-            return null;
-        }
-        String serverUrl = serverUrls.get(0);
-
-        URL parsed;
-        try {
-            if (serverUrl.startsWith("/")) {
-                String host = context.getApiHost();
-                if (host == null) {
-                    context.api.logging().logToError("Server URL is relative, but no host is defined. Please set one in the Specification tab.");
-                    return null;
-                }
-                parsed = new URL(new URL(host), serverUrl);
-            } else {
-                parsed = new URL(serverUrl);
-            }
-        } catch (MalformedURLException e) {
-            context.api.logging().logToError("Invalid server URL in spec: " + serverUrl);
+        // Resolved once per server configuration; the first server serves preview/single builds
+        if (servers.primary == null) {
+            context.api.logging().logToError(servers.error);
             return null;
         }
+        ServerSnapshot.Target server = servers.primary;
+        RequestTemplate template = templateFor(endpoint, servers);
 
-        // Substitute path params from store or spec fallbacks
-        String finalPath = substitutePathParameters(endpoint, paramStore);
-
-        // Build HttpService
-        int port = parsed.getPort() == -1 ? parsed.getDefaultPort() : parsed.getPort();
-        boolean secure = "https".equalsIgnoreCase(parsed.getProtocol());
-        HttpService service = httpService(parsed.getHost(), port, secure);
-
-        // Build full path: base path from server + endpoint path
-        String pathWithPrefix = parsed.getPath().equals("/") ? "" : parsed.getPath();
-        if (pathWithPrefix.endsWith("/")) {
-            pathWithPrefix = pathWithPrefix.substring(0, pathWithPrefix.length() - 1);
-        }
-        pathWithPrefix += finalPath;
+        // Build full path: base path from server + endpoint path with path params from store or spec fallbacks
+        String pathWithPrefix = buildPath(server.basePath(), template, params);
         if (pathWithPrefix.isEmpty()) {
             pathWithPrefix = "/";
         }
 
         // Headers from store
         List<HttpHeader> headers = new ArrayList<>();
-        addHeadersFromStore(headers, endpoint, paramStore);
-        addCookieHeader(headers, endpoint, paramStore);
+        addHeadersFromStore(headers, template, params);
+        addCookieHeader(headers, template, params);
 
         // Inject auth headers and cookie per security schemes before custom header rules
-        addAuthFromSecuritySchemes(headers, endpoint);
+        AuthPlan auth = authPlanFor(template);
+        addAuthFromSecuritySchemes(headers, auth);
 
         // Ensure Host header is present
         boolean hasHost = headers.stream().anyMatch(h -> h.name().equalsIgnoreCase("Host"));
         if (!hasHost) {
-            String hostValue = parsed.getHost();
-            if ((secure && port != 443) || (!secure && port != 80)) {
-                hostValue = hostValue + ":" + port;
-            }
-            headers.add(httpHeader("Host", hostValue));
+            headers.add(httpHeader("Host", server.hostHeader()));
         }
 
         // Body from OpenAPI examples or synthesized from schema, then overlay global store overrides for in="body"
         String body = "";
-        RequestBody rb = endpoint.getOperation().getRequestBody();
-        rb = derefRequestBody(rb);
-        BuiltBody built = buildBodyFromSpecExamples(rb, paramStore, headers);
+        BuiltBody built = buildBodyFromSpecExamples(template, params, headers);
 
         if (!built.headers.isEmpty()) {
             boolean haveCT = headers.stream().anyMatch(h -> h.name().equalsIgnoreCase("Content-Type"));
@@ -133,68 +117,12 @@ public class RequestFactory {
             body = built.body;
         }
 
-        // Apply Custom Header rules from the Headers tab, if enabled
+        // Apply Custom Header rules from the Headers tab, if enabled; scope was matched at compile time
         if (context.isHeadersApplyToWorkbench()) {
-            List<HeaderRule> rules = context.getHeaderRules();
-            for (HeaderRule r : rules) {
-                if (r == null || !r.enabled) continue;
-                if (r.name == null || r.name.trim().isEmpty()) continue;
-
-                // Match scope
-                boolean match = false;
-                String epPath = endpoint.getPath() == null ? "" : endpoint.getPath();
-                switch (r.scope) {
-                    case ALL:
-                        match = true;
-                        break;
-                    case HOST:
-                        match = parsed.getHost().equalsIgnoreCase(r.match);
-                        break;
-                    case PATH_PREFIX: {
-                        String normPath = epPath == null ? "" : epPath.trim();
-                        if (!normPath.startsWith("/")) normPath = "/" + normPath;
-
-                        String m = r.match == null ? "" : r.match.trim();
-                        if (!m.isEmpty() && !m.startsWith("/")) m = "/" + m;
-
-                        match = m.isEmpty() || normPath.startsWith(m);
-                        break;
-                    }
-                    case TAG:
-                        match = endpoint.getOperation() != null
-                                && endpoint.getOperation().getTags() != null
-                                && r.match != null
-                                && endpoint.getOperation().getTags().contains(r.match);
-                        break;
-                    case METHOD:
-                        match = endpoint.getMethod().toString().equalsIgnoreCase(r.match);
-                        break;
-                    default:
-                        match = false;
-                }
-                if (!match) continue;
-
-                // Guardrails for dangerous or managed headers
-                String nameLc = r.name.toLowerCase(Locale.ROOT);
-                if (nameLc.equals("host") || nameLc.equals("content-length") || nameLc.equals("transfer-encoding") || nameLc.equals("connection")) {
-                    continue;
-                }
-
-                // Compute value with ${param.*} substitution from the global parameter store
-                String value = r.value == null ? "" : r.value;
-                if (value.contains("${param.")) {
-                    for (Map.Entry<String, Parameter> e : paramStore.entrySet()) {
-                        String unique = e.getKey(); // now canonical, like "in:name" or "body:json.path[]"
-                        String v = e.getValue() != null && e.getValue().getValue() != null ? e.getValue().getValue() : "";
-
-                        value = value.replace("${param." + unique + "}", v);
-
-                        String simple = e.getValue() != null ? e.getValue().getName() : null;
-                        if (simple != null && !simple.isEmpty()) {
-                            value = value.replace("${param." + simple + "}", v);
-                        }
-                    }
-                }
+            Map<String, String> bound = headerRules(context.getHeaderRulesVersion())
+                    .bindings(paramStore, parameters.getKeysVersion());
+            for (CompiledHeaderRule r : template.headerRules) {
+                String value = r.render(paramStore, bound);
 
                 boolean exists = headers.stream().anyMatch(h -> h.name().equalsIgnoreCase(r.name));
                 if (exists && r.overwrite) {
@@ -208,140 +136,145 @@ public class RequestFactory {
 
         // Create base request with service, path, method, headers, body
         HttpRequest request = HttpRequest.httpRequest()
-                .withService(service)
+                .withService(server.service())
                 .withPath(pathWithPrefix)
                 .withMethod(endpoint.getMethod().toString())
                 .withAddedHeaders(headers)
                 .withBody(body);
 
         // Add query parameters from the store and spec fallbacks
-        request = addQueryParameters(request, endpoint, paramStore);
+        request = addQueryParameters(request, template, params, auth);
 
         // Add auth query parameter if the applicable scheme is API key in=query
-        request = addAuthQueryParameters(request, endpoint);
+        request = addAuthQueryParameters(request, auth);
 
         return request;
     }
 
-    // servers and variables
+    // compiled templates
 
-    /**
-     * Resolve server base URLs from the spec based on user selection and overrides.
-     * If iterateAcrossAllServers is enabled, all servers are resolved and returned.
-     * buildRequest uses only the first entry for preview/single.
-     */
-    private List<String> resolveServerBaseUrls() {
-        var oa = context.getOpenAPI();
-        if (oa == null || oa.getServers() == null || oa.getServers().isEmpty()) {
-            return List.of();
-        }
-        List<Server> servers = oa.getServers();
-
-        if (context.isIterateAcrossAllServers()) {
-            List<String> out = new ArrayList<>();
-            for (int i = 0; i < servers.size(); i++) {
-                out.add(resolveServerUrlWithVars(servers.get(i), i));
-            }
-            return out;
-        } else {
-            int idx = Math.min(Math.max(context.getSelectedServerIndex(), 0), servers.size() - 1);
-            return List.of(resolveServerUrlWithVars(servers.get(idx), idx));
+    private ServerSnapshot currentServers() {
+        long spec = context.getSpecVersion();
+        long servers = context.getServersVersion();
+        ServerSnapshot cached = serverSnapshot;
+        if (cached != null && cached.isCurrent(spec, servers)) {
+            return cached;
         }
+        ServerSnapshot resolved = ServerSnapshot.resolve(context, spec, servers);
+        serverSnapshot = resolved;
+        return resolved;
     }
 
-    private String resolveServerUrlWithVars(Server server, int serverIndex) {
-        if (server == null || server.getUrl() == null) return "";
-        String url = server.getUrl();
+    private RequestTemplate templateFor(Endpoint endpoint, ServerSnapshot servers) {
+        long spec = servers.specVersion;
+        long rules = context.getHeaderRulesVersion();
 
-        Map<String, String> vals = new HashMap<>();
-        if (server.getVariables() != null) {
-            for (var e : server.getVariables().entrySet()) {
-                String def = (e.getValue() != null && e.getValue().getDefault() != null)
-                        ? e.getValue().getDefault()
-                        : "";
-                vals.put(e.getKey(), def);
-            }
-        }
-        vals.putAll(context.getServerVariableOverrides(serverIndex));
+        // Endpoints and schemas from an earlier spec are gone; a new spec starts from an empty cache.
+        // A build still running against an older spec compiles into a throwaway cache instead.
+        Compiled cache = compiled.updateAndGet(c -> c.specVersion() >= spec ? c : new Compiled(spec));
+        if (cache.specVersion() != spec) cache = new Compiled(spec);
 
-        for (var e : vals.entrySet()) {
-            url = url.replace("{" + e.getKey() + "}", e.getValue() == null ? "" : e.getValue());
+        RequestTemplate cached = cache.templates().get(endpoint);
+        if (cached != null && cached.isCurrent(spec, servers.serversVersion, rules)) {
+            return cached;
         }
-        return url;
+        RequestTemplate template = compileTemplate(endpoint, servers, rules);
+        cache.templates().put(endpoint, template);
+        return template;
     }
 
-    // path, header, cookie, query helpers
+    private RequestTemplate compileTemplate(Endpoint endpoint, ServerSnapshot servers, long rulesVersion) {
+        List<RequestTemplate.ParamSlot> path = new ArrayList<>();
+        List<RequestTemplate.ParamSlot> header = new ArrayList<>();
+        List<RequestTemplate.ParamSlot> cookie = new ArrayList<>();
+        List<RequestTemplate.ParamSlot> query = new ArrayList<>();
 
-    private String substitutePathParameters(Endpoint endpoint, Map<String, Parameter> store) {
-        String finalPath = endpoint.getPath();
         for (io.swagger.v3.oas.models.parameters.Parameter specParam
                 : endpoint.getAllParameters(context.getOpenAPI())) {
-            if (!"path".equalsIgnoreCase(specParam.getIn())) continue;
-
-            Parameter stored = findParam(store, "path", specParam.getName());
-            String value = stored != null ? stored.getValue() : null;
-
-            if (value == null || value.isEmpty()) {
-                if (specParam.getExample() != null) value = String.valueOf(specParam.getExample());
-                if ((value == null || value.isEmpty()) && specParam.getSchema() != null && specParam.getSchema().getDefault() != null)
-                    value = String.valueOf(specParam.getSchema().getDefault());
-                if ((value == null || value.isEmpty()) && specParam.getSchema() != null
-                        && specParam.getSchema().getEnum() != null && !specParam.getSchema().getEnum().isEmpty())
-                    value = String.valueOf(specParam.getSchema().getEnum().get(0));
+            String in = specParam.getIn() == null ? "" : specParam.getIn().toLowerCase(Locale.ROOT);
+            RequestTemplate.ParamSlot slot = new RequestTemplate.ParamSlot(specParam.getName(), specFallback(specParam));
+            switch (in) {
+                case "path" -> path.add(slot);
+                case "header" -> {
+                    String nlc = specParam.getName() != null ? specParam.getName().toLowerCase(Locale.ROOT) : "";
+                    if (!isManagedHeader(nlc)) header.add(slot);
+                }
+                case "cookie" -> cookie.add(slot);
+                case "query" -> query.add(slot);
+                default -> {
+                }
             }
+        }
+
+        RequestBody rb = derefRequestBody(endpoint.getOperation().getRequestBody());
+
+        List<CompiledHeaderRule> rules = headerRules(rulesVersion).matching(endpoint, servers.primary.host());
 
-            if (value == null || value.isEmpty()) value = "id";
-            finalPath = finalPath.replace("{" + specParam.getName() + "}", encodePathSegment(value));
+        return new RequestTemplate(endpoint, path, header, cookie, query, rb,
+                getEffectiveSecurity(endpoint), rules,
+                servers.specVersion, servers.serversVersion, rulesVersion);
+    }
+
+    private HeaderRuleSet headerRules(long rulesVersion) {
+        HeaderRuleSet set = headerRuleSet;
+        if (set == null || set.version != rulesVersion) {
+            set = HeaderRuleSet.compile(context.getHeaderRules(), rulesVersion);
+            headerRuleSet = set;
         }
-        return finalPath;
+        return set;
     }
 
-    private void addHeadersFromStore(List<HttpHeader> headers, Endpoint endpoint, Map<String, Parameter> store) {
-        for (io.swagger.v3.oas.models.parameters.Parameter specParam
-                : endpoint.getAllParameters(context.getOpenAPI())) {
+    static boolean isManagedHeader(String nameLc) {
+        return nameLc.equals("host") || nameLc.equals("content-length")
+                || nameLc.equals("transfer-encoding") || nameLc.equals("connection");
+    }
 
-            if (!"header".equalsIgnoreCase(specParam.getIn())) continue;
+    /** Example, then schema default, then first enum value; null when the spec offers none. */
+    private static String specFallback(io.swagger.v3.oas.models.parameters.Parameter specParam) {
+        String value = null;
+        if (specParam.getExample() != null) value = String.valueOf(specParam.getExample());
+        if ((value == null || value.isEmpty()) && specParam.getSchema() != null && specParam.getSchema().getDefault() != null)
+            value = String.valueOf(specParam.getSchema().getDefault());
+        if ((value == null || value.isEmpty()) && specParam.getSchema() != null
+                && specParam.getSchema().getEnum() != null && !specParam.getSchema().getEnum().isEmpty())
+            value = String.valueOf(specParam.getSchema().getEnum().get(0));
+        return value == null || value.isEmpty() ? null : value;
+    }
 
-            Parameter stored = findParam(store, "header", specParam.getName());
-            String value = stored != null ? stored.getValue() : null;
+    private static String valueOrFallback(Parameter stored, RequestTemplate.ParamSlot slot) {
+        String value = stored != null ? stored.getValue() : null;
+        return value == null || value.isEmpty() ? slot.fallback() : value;
+    }
 
-            String nlc = specParam.getName() != null ? specParam.getName().toLowerCase(Locale.ROOT) : "";
-            if (nlc.equals("host") || nlc.equals("content-length") || nlc.equals("transfer-encoding") || nlc.equals("connection")) {
-                continue;
-            }
+    // path, header, cookie, query helpers
 
-            if (value == null || value.isEmpty()) {
-                if (specParam.getExample() != null) value = String.valueOf(specParam.getExample());
-                if ((value == null || value.isEmpty()) && specParam.getSchema() != null && specParam.getSchema().getDefault() != null)
-                    value = String.valueOf(specParam.getSchema().getDefault());
-                if ((value == null || value.isEmpty()) && specParam.getSchema() != null
-                        && specParam.getSchema().getEnum() != null && !specParam.getSchema().getEnum().isEmpty())
-                    value = String.valueOf(specParam.getSchema().getEnum().get(0));
-            }
+    private String buildPath(String basePath, RequestTemplate template, ParameterIndex params) {
+        StringBuilder out = new StringBuilder(basePath.length() + template.endpoint.getPath().length() + 16);
+        out.append(basePath);
+        template.path.appendTo(out, i -> {
+            RequestTemplate.ParamSlot slot = template.pathParams.get(i);
+            String value = valueOrFallback(params.find("path", slot.name()), slot);
+            return value == null || value.isEmpty() ? "id" : value;
+        });
+        return out.toString();
+    }
 
+    private void addHeadersFromStore(List<HttpHeader> headers, RequestTemplate template, ParameterIndex params) {
+        for (RequestTemplate.ParamSlot slot : template.headerParams) {
+            String value = valueOrFallback(params.find("header", slot.name()), slot);
             if (value != null && !value.isEmpty()) {
-                boolean isCT = "content-type".equalsIgnoreCase(specParam.getName());
+                boolean isCT = "content-type".equalsIgnoreCase(slot.name());
                 boolean alreadyHasCT = isCT && headers.stream().anyMatch(h -> h.name().equalsIgnoreCase("Content-Type"));
-                if (!alreadyHasCT) headers.add(httpHeader(specParam.getName(), value));
+                if (!alreadyHasCT) headers.add(httpHeader(slot.name(), value));
             }
         }
     }
 
-    private void addCookieHeader(List<HttpHeader> headers, Endpoint endpoint, Map<String, Parameter> store) {
-        String cookieString = endpoint.getAllParameters(context.getOpenAPI()).stream()
-                .filter(p -> "cookie".equalsIgnoreCase(p.getIn()))
-                .map(p -> {
-                    Parameter stored = findParam(store, "cookie", p.getName());
-                    String value = stored != null ? stored.getValue() : null;
-                    if (value == null || value.isEmpty()) {
-                        if (p.getExample() != null) value = String.valueOf(p.getExample());
-                        if ((value == null || value.isEmpty()) && p.getSchema() != null && p.getSchema().getDefault() != null)
-                            value = String.valueOf(p.getSchema().getDefault());
-                        if ((value == null || value.isEmpty()) && p.getSchema() != null
-                                && p.getSchema().getEnum() != null && !p.getSchema().getEnum().isEmpty())
-                            value = String.valueOf(p.getSchema().getEnum().get(0));
-                    }
-                    return (value != null && !value.isEmpty()) ? (p.getName() + "=" + value) : null;
+    private void addCookieHeader(List<HttpHeader> headers, RequestTemplate template, ParameterIndex params) {
+        String cookieString = template.cookieParams.stream()
+                .map(slot -> {
+                    String value = valueOrFallback(params.find("cookie", slot.name()), slot);
+                    return (value != null && !value.isEmpty()) ? (slot.name() + "=" + value) : null;
                 })
                 .filter(Objects::nonNull)
                 .collect(Collectors.joining("; "));
@@ -361,192 +294,56 @@ public class RequestFactory {
         }
     }
 
-    private HttpRequest addQueryParameters(HttpRequest request, Endpoint endpoint, Map<String, Parameter> store) {
+    private HttpRequest addQueryParameters(HttpRequest request, RequestTemplate template, ParameterIndex params,
+                                           AuthPlan auth) {
         HttpRequest newRequest = request;
 
         // names of query params that are actually auth API keys and have a token
-        java.util.Set<String> reservedAuthQueryNames = getAuthQueryParamNamesForEndpoint(endpoint);
-
-        for (io.swagger.v3.oas.models.parameters.Parameter specParam
-                : endpoint.getAllParameters(context.getOpenAPI())) {
-
-            if (!"query".equalsIgnoreCase(specParam.getIn())) continue;
+        java.util.Set<String> reservedAuthQueryNames = auth.reservedQueryNames;
 
+        for (RequestTemplate.ParamSlot slot : template.queryParams) {
             // skip if this param is an auth API key name; let addAuthQueryParameters do it
-            if (reservedAuthQueryNames.contains(specParam.getName())) {
+            if (reservedAuthQueryNames.contains(slot.name())) {
                 continue;
             }
 
-            Parameter stored = findParam(store, "query", specParam.getName());
-            String value = stored != null ? stored.getValue() : null;
-
-            if (value == null || value.isEmpty()) {
-                if (specParam.getExample() != null) value = String.valueOf(specParam.getExample());
-                if ((value == null || value.isEmpty()) && specParam.getSchema() != null && specParam.getSchema().getDefault() != null)
-                    value = String.valueOf(specParam.getSchema().getDefault());
-                if ((value == null || value.isEmpty()) && specParam.getSchema() != null
-                        && specParam.getSchema().getEnum() != null && !specParam.getSchema().getEnum().isEmpty())
-                    value = String.valueOf(specParam.getSchema().getEnum().get(0));
-            }
-
+            String value = valueOrFallback(params.find("query", slot.name()), slot);
             if (value != null && !value.isEmpty()) {
-                newRequest = newRequest.withAddedParameters(urlParameter(specParam.getName(), value));
+                newRequest = newRequest.withAddedParameters(urlParameter(slot.name(), value));
             }
         }
         return newRequest;
     }
 
-    // Add auth query param if applicable (API key in=query)
-    private HttpRequest addAuthQueryParameters(HttpRequest request, Endpoint endpoint) {
-        var oa = context.getOpenAPI();
-        if (oa == null || oa.getComponents() == null || oa.getComponents().getSecuritySchemes() == null) return request;
-
-        Map<String, SecurityScheme> schemes = oa.getComponents().getSecuritySchemes();
-        List<SecurityRequirement> reqs = getEffectiveSecurity(endpoint);
+    private AuthPlan authPlanFor(RequestTemplate template) {
+        return template.authPlan(context.getAuthTokensVersion(), tokensVersion -> {
+            var oa = context.getOpenAPI();
+            Map<String, SecurityScheme> schemes = oa == null || oa.getComponents() == null
+                    ? null
+                    : oa.getComponents().getSecuritySchemes();
+            return AuthPlan.compile(template.security, schemes, context::getAuthToken, tokensVersion);
+        });
+    }
 
+    // Add auth query param if applicable (API key in=query)
+    private HttpRequest addAuthQueryParameters(HttpRequest request, AuthPlan auth) {
         HttpRequest out = request;
-        boolean added = false;
-
-        if (reqs != null && !reqs.isEmpty()) {
-            // OR across requirement objects: satisfy first one we have tokens for
-            for (SecurityRequirement r : reqs) {
-                boolean addedSomething = false;
-                for (String schemeName : r.keySet()) {
-                    SecurityScheme scheme = schemes.get(schemeName);
-                    if (scheme == null) continue;
-
-                    String token = context.getAuthToken(schemeName);
-                    if (token == null || token.isBlank()) continue;
-
-                    if (scheme.getType() == SecurityScheme.Type.APIKEY && scheme.getIn() == SecurityScheme.In.QUERY) {
-                        String name = scheme.getName() != null ? scheme.getName() : "api_key";
-                        out = out.withAddedParameters(urlParameter(name, token));
-                        addedSomething = true;
-                    }
-                }
-                if (addedSomething) {
-                    added = true;
-                    break;
-                }
-            }
-        }
-
-        // Fallback
-        if (!added) {
-            for (Map.Entry<String, SecurityScheme> e : schemes.entrySet()) {
-                String schemeName = e.getKey();
-                SecurityScheme scheme = e.getValue();
-                if (scheme == null) continue;
-
-                if (scheme.getType() == SecurityScheme.Type.APIKEY && scheme.getIn() == SecurityScheme.In.QUERY) {
-                    String token = context.getAuthToken(schemeName);
-                    if (token == null || token.isBlank()) continue;
-
-                    String name = scheme.getName() != null ? scheme.getName() : "api_key";
-                    out = out.withAddedParameters(urlParameter(name, token));
-                }
-            }
+        for (AuthPlan.Injection i : auth.queryParams) {
+            out = out.withAddedParameters(urlParameter(i.name(), i.value()));
         }
         return out;
     }
 
     // auth injection: headers and cookie
     // auth injection that overwrites any example values
-    private void addAuthFromSecuritySchemes(List<HttpHeader> headers, Endpoint endpoint) {
-        var oa = context.getOpenAPI();
-        if (oa == null || oa.getComponents() == null || oa.getComponents().getSecuritySchemes() == null) return;
-
-        Map<String, SecurityScheme> schemes = oa.getComponents().getSecuritySchemes();
-        List<SecurityRequirement> reqs = getEffectiveSecurity(endpoint);
-
-        boolean injected = false;
-
-        if (reqs != null && !reqs.isEmpty()) {
-            // OR across requirement objects: satisfy the first object we can
-            for (SecurityRequirement r : reqs) {
-                if (tryInjectOneRequirement(headers, r, schemes)) {
-                    injected = true;
-                    break;
-                }
-            }
-        }
-
-        // Fallback
-        if (!injected) {
-            fallbackInjectApiKeyHeaderAndCookie(headers, schemes);
-        }
-    }
-
-    private void fallbackInjectApiKeyHeaderAndCookie(List<HttpHeader> headers, Map<String, SecurityScheme> schemes) {
-        if (schemes == null || schemes.isEmpty()) return;
-
-        for (Map.Entry<String, SecurityScheme> e : schemes.entrySet()) {
-            String schemeName = e.getKey();
-            SecurityScheme scheme = e.getValue();
-            if (scheme == null || scheme.getType() != SecurityScheme.Type.APIKEY) continue;
-
-            String token = context.getAuthToken(schemeName);
-            if (token == null || token.isBlank()) continue;
-
-            SecurityScheme.In in = scheme.getIn();
-            String name = scheme.getName() != null ? scheme.getName() : "api_key";
-
-            if (in == SecurityScheme.In.HEADER) {
-                upsertHeader(headers, name, token);
-            } else if (in == SecurityScheme.In.COOKIE) {
-                upsertCookieKV(headers, name, token);
-            }
-        }
-    }
-
-    private boolean tryInjectOneRequirement(List<HttpHeader> headers,
-                                            SecurityRequirement requirement,
-                                            Map<String, SecurityScheme> schemes) {
-        boolean didInject = false;
-
-        for (String schemeName : requirement.keySet()) {
-            SecurityScheme scheme = schemes.get(schemeName);
-            if (scheme == null) continue;
-
-            String token = context.getAuthToken(schemeName);
-            if (token == null || token.isBlank()) continue;
-
-            switch (scheme.getType()) {
-                case APIKEY -> {
-                    SecurityScheme.In in = scheme.getIn();
-                    String name = scheme.getName() != null ? scheme.getName() : "api_key";
-
-                    if (in == SecurityScheme.In.HEADER) {
-                        upsertHeader(headers, name, token);
-                        didInject = true;
-                    } else if (in == SecurityScheme.In.COOKIE) {
-                        upsertCookieKV(headers, name, token);
-                        didInject = true;
-                    }
-                }
-
-                case HTTP -> {
-                    String schemeNameLc = scheme.getScheme() == null ? "" : scheme.getScheme().toLowerCase(Locale.ROOT);
-                    if ("bearer".equals(schemeNameLc)) {
-                        upsertHeader(headers, "Authorization", "Bearer " + token);
-                        didInject = true;
-                    } else if ("basic".equals(schemeNameLc)) {
-                        upsertHeader(headers, "Authorization", "Basic " + token);
-                        didInject = true;
-                    }
-                }
-
-                case OAUTH2, OPENIDCONNECT -> {
-                    upsertHeader(headers, "Authorization", "Bearer " + token);
-                    didInject = true;
-                }
-
-                default -> {
-                    // unsupported types ignored safely
-                }
+    private void addAuthFromSecuritySchemes(List<HttpHeader> headers, AuthPlan auth) {
+        for (AuthPlan.Injection i : auth.headersAndCookies) {
+            if (i.target() == AuthPlan.Target.COOKIE) {
+                upsertCookieKV(headers, i.name(), i.value());
+            } else {
+                upsertHeader(headers, i.name(), i.value());
             }
         }
-        return didInject;
     }
 
     // helpers: upsert header and cookie KV
@@ -582,31 +379,6 @@ public class RequestFactory {
         headers.add(httpHeader("Cookie", joined));
     }
 
-    private java.util.Set<String> getAuthQueryParamNamesForEndpoint(Endpoint endpoint) {
-        var oa = context.getOpenAPI();
-        if (oa == null || oa.getComponents() == null || oa.getComponents().getSecuritySchemes() == null)
-            return java.util.Set.of();
-
-        Map<String, SecurityScheme> schemes = oa.getComponents().getSecuritySchemes();
-        List<io.swagger.v3.oas.models.security.SecurityRequirement> reqs = getEffectiveSecurity(endpoint);
-        if (reqs == null || reqs.isEmpty()) return java.util.Set.of();
-
-        java.util.LinkedHashSet<String> names = new java.util.LinkedHashSet<>();
-        for (var r : reqs) {
-            for (String schemeName : r.keySet()) {
-                SecurityScheme s = schemes.get(schemeName);
-                if (s == null) continue;
-                String token = context.getAuthToken(schemeName);
-                if (token == null || token.isBlank()) continue;
-                if (s.getType() == SecurityScheme.Type.APIKEY && s.getIn() == SecurityScheme.In.QUERY) {
-                    String name = s.getName() != null ? s.getName() : "api_key";
-                    names.add(name);
-                }
-            }
-        }
-        return names;
-    }
-
     private List<SecurityRequirement> getEffectiveSecurity(Endpoint endpoint) {
         List<SecurityRequirement> reqs = endpoint.getOperation() != null
                 ? endpoint.getOperation().getSecurity()
@@ -633,9 +405,10 @@ public class RequestFactory {
 
     // body building and synthesis
 
-    private BuiltBody buildBodyFromSpecExamples(RequestBody rb,
-                                                Map<String, Parameter> store,
+    private BuiltBody buildBodyFromSpecExamples(RequestTemplate template,
+                                                ParameterIndex params,
                                                 List<HttpHeader> existingHeaders) {
+        RequestBody rb = template.requestBody;
         if (rb == null || rb.getContent() == null || rb.getContent().isEmpty()) {
             return BuiltBody.empty();
         }
@@ -648,11 +421,14 @@ public class RequestFactory {
                         .map(this::normalizeMediaKey)
                         .orElse("");
 
-        List<Map.Entry<String, MediaType>> entries = new ArrayList<>(rb.getContent().entrySet());
-        entries.sort((a, b) -> Integer.compare(
-                mediaRank(a.getKey(), desired),
-                mediaRank(b.getKey(), desired))
-        );
+        List<Map.Entry<String, MediaType>> entries = template.rankedMedia(desired, want -> {
+            List<Map.Entry<String, MediaType>> ranked = new ArrayList<>(rb.getContent().entrySet());
+            ranked.sort((a, b) -> Integer.compare(
+                    mediaRank(a.getKey(), want),
+                    mediaRank(b.getKey(), want))
+            );
+            return List.copyOf(ranked);
+        });
 
         for (Map.Entry<String, MediaType> e : entries) {
             String headerKey = e.getKey();
@@ -669,23 +445,21 @@ public class RequestFactory {
             // Synthesize if no explicit example
             if (example == null && schema != null) {
                 if (norm.equals("application/x-www-form-urlencoded")) {
-                    Map<String, Object> m = materializeMapFromSchema(schema, 0);
-                    applyBodyOverridesToMap(m, store, "");
+                    Map<String, Object> m = formSkeleton(schema);
+                    applyBodyOverridesToMap(m, params);
                     return new BuiltBody(renderWwwForm(m), List.of(httpHeader("Content-Type", headerKey)));
                 } else if (norm.equals("multipart/form-data")) {
-                    Map<String, Object> m = materializeMapFromSchema(schema, 0);
-                    applyBodyOverridesToMap(m, store, "");
+                    Map<String, Object> m = formSkeleton(schema);
+                    applyBodyOverridesToMap(m, params);
                     String boundary = "----SpecOps" + UUID.randomUUID();
                     String body = renderMultipart(m, boundary, media.getEncoding()) + "\r\n";
                     return new BuiltBody(body, List.of(httpHeader("Content-Type", headerKey + "; boundary=" + boundary)));
                 } else if (isJsonLike(norm) || norm.equals("*/*") || norm.isEmpty()) {
-                    String json = materializeJsonFromSchema(schema, 0);
-                    json = applyBodyOverridesToJson(json, store, schema);
+                    String json = applyBodyOverridesToJson(jsonSkeleton(schema), params, schema);
                     String ctHeader = isJsonLike(norm) ? headerKey : "application/json";
                     return new BuiltBody(json, List.of(httpHeader("Content-Type", ctHeader)));
                 } else {
-                    String json = materializeJsonFromSchema(schema, 0);
-                    json = applyBodyOverridesToJson(json, store, schema);
+                    String json = applyBodyOverridesToJson(jsonSkeleton(schema), params, schema);
                     return new BuiltBody(json, List.of(httpHeader("Content-Type", "application/json")));
                 }
             }
@@ -694,27 +468,26 @@ public class RequestFactory {
             if (example != null) {
                 if (norm.equals("application/x-www-form-urlencoded")) {
                     Map<String, Object> m = coerceToMap(example);
-                    applyBodyOverridesToMap(m, store, "");
+                    applyBodyOverridesToMap(m, params);
                     return new BuiltBody(renderWwwForm(m), List.of(httpHeader("Content-Type", headerKey)));
                 } else if (norm.equals("multipart/form-data")) {
                     Map<String, Object> m = coerceToMap(example);
-                    applyBodyOverridesToMap(m, store, "");
+                    applyBodyOverridesToMap(m, params);
                     String boundary = "----SpecOps" + UUID.randomUUID();
                     String body = renderMultipart(m, boundary, media.getEncoding()) + "\r\n";
                     return new BuiltBody(body, List.of(httpHeader("Content-Type", headerKey + "; boundary=" + boundary)));
                 } else if (isJsonLike(norm) || norm.equals("*/*") || norm.isEmpty()) {
                     String ctHeader = isJsonLike(norm) ? headerKey : "application/json";
-                    String json = renderJson(example);
-                    json = applyBodyOverridesToJson(json, store, schema);
+                    String json = applyBodyOverridesToJson(exampleJson(example), params, schema);
                     return new BuiltBody(json, List.of(httpHeader("Content-Type", ctHeader)));
                 } else if (norm.startsWith("text/")) {
                     String s = String.valueOf(example);
-                    String rootOverride = readBodyOverride(store, "");
+                    String rootOverride = readBodyOverride(params, "");
                     if (rootOverride != null) s = rootOverride;
                     return new BuiltBody(s, List.of(httpHeader("Content-Type", headerKey)));
                 } else {
                     String s = String.valueOf(example);
-                    String rootOverride = readBodyOverride(store, "");
+                    String rootOverride = readBodyOverride(params, "");
                     if (rootOverride != null) s = rootOverride;
                     return new BuiltBody(s, List.of(httpHeader("Content-Type", headerKey)));
                 }
@@ -725,8 +498,7 @@ public class RequestFactory {
         for (Map.Entry<String, MediaType> e : entries) {
             Schema<?> schema = deref(e.getValue().getSchema());
             if (schema != null) {
-                String json = materializeJsonFromSchema(schema, 0);
-                json = applyBodyOverridesToJson(json, store, schema);
+                String json = applyBodyOverridesToJson(jsonSkeleton(schema), params, schema);
                 return new BuiltBody(json, List.of(httpHeader("Content-Type", "application/json")));
             }
         }
@@ -873,6 +645,45 @@ public class RequestFactory {
         return sb.toString();
     }
 
+    private JsonBody jsonSkeleton(Schema<?> schema) {
+        Map<SchemaKey, JsonBody> jsonSkeletons = compiled.get().jsonSkeletons();
+        JsonBody cached = jsonSkeletons.get(new SchemaKey(schema));
+        if (cached == null) {
+            String json = materializeJsonFromSchema(schema, 0);
+            Object tree;
+            try {
+                tree = Json.mapper().readValue(json, Object.class);
+            } catch (Throwable t) {
+                tree = null; // e.g. an example string that only looks like JSON; sent as rendered
+            }
+            cached = new JsonBody(tree, json);
+            jsonSkeletons.put(new SchemaKey(schema), cached);
+        }
+        return cached;
+    }
+
+    private JsonBody exampleJson(Object example) {
+        try {
+            return new JsonBody(Json.mapper().convertValue(example, Object.class), null);
+        } catch (Throwable t) {
+            return new JsonBody(null, renderJson(example));
+        }
+    }
+
+    /**
+     * Form fields synthesized from the schema, as a fresh top-level map over the cached skeleton.
+     * Overrides only replace top-level entries, so nested values are shared rather than copied.
+     */
+    private Map<String, Object> formSkeleton(Schema<?> schema) {
+        Map<SchemaKey, Map<String, Object>> formSkeletons = compiled.get().formSkeletons();
+        Map<String, Object> cached = formSkeletons.get(new SchemaKey(schema));
+        if (cached == null) {
+            cached = materializeMapFromSchema(schema, 0);
+            formSkeletons.put(new SchemaKey(schema), cached);
+        }
+        return new LinkedHashMap<>(cached);
+    }
+
     private Map<String, Object> coerceToMap(Object example) {
         if (example instanceof Map<?, ?> m) {
             Map<String, Object> out = new LinkedHashMap<>();
@@ -1059,110 +870,102 @@ public class RequestFactory {
         return "string";
     }
 
-    private String readBodyOverride(Map<String, Parameter> store, String path) {
-        String target = wildcardArrays(path).toLowerCase(Locale.ROOT);
-        for (Parameter p : store.values()) {
-            if (!"body".equalsIgnoreCase(p.getIn())) continue;
-            String jp = p.getJsonPath();
-            if (jp == null) continue;
-            if (jp.toLowerCase(Locale.ROOT).equals(target)) {
-                String v = p.getValue();
-                if (v != null && !v.isEmpty()) return v;
-            }
+    private String readBodyOverride(ParameterIndex params, String path) {
+        for (Parameter p : params.findBodyByJsonPath(path)) {
+            String v = p.getValue();
+            if (v != null && !v.isEmpty()) return v;
         }
         return null;
     }
 
-    private String applyBodyOverridesToJson(String json, Map<String, Parameter> store, Schema<?> schema) {
-        if (json == null || json.isEmpty() || store == null || store.isEmpty()) return json;
+    /**
+     * Applies body overrides to the JSON tree and serializes it once.
+     * The tree is copied on the first override, so cached skeletons stay untouched.
+     */
+    private String applyBodyOverridesToJson(JsonBody body, ParameterIndex params, Schema<?> schema) {
+        if (body.tree == null || params == null) return body.render();
         try {
-            Object root = Json.mapper().readValue(json, Object.class);
+            Object root = null;
 
-            Map<String, String> types = topLevelTypes(schema);
+            Map<String, String> types = overrideTargets(schema);
 
-            // Support root array body
-            if (schema != null) {
-                Schema<?> s = deref(schema);
-                Schema<?> composed = composeSchema(s, 0);
-                if (composed != null) s = composed;
-                if ("array".equals(s.getType())) {
-                    types.put("[]", "array");
-                }
-            }
+            // Only parameters under a known top-level key can apply; root array paths are filed under "[]"
+            for (Map.Entry<String, String> top : types.entrySet()) {
+                String kind = top.getValue();
+                for (Parameter p : params.bodyParamsUnder(top.getKey())) {
+                    if (p.getValue() == null) continue;
 
-            for (Parameter p : store.values()) {
-                if (!"body".equalsIgnoreCase(p.getIn())) continue;
-                if (p.getValue() == null) continue;
-
-                String rawPath = p.getJsonPath();
-                if (rawPath == null) continue;
+                    String rawPath = p.getJsonPath();
+                    if (rawPath == null) continue;
 
-                String normalized = wildcardToIndex(rawPath); // translate [] -> [0] for writes
+                    String normalized = wildcardToIndex(rawPath); // translate [] -> [0] for writes
 
-                List<Object> tokens = tokenizePath(normalized);
-                if (tokens.isEmpty()) continue;
+                    List<Object> tokens = tokenizePath(normalized);
+                    if (tokens.isEmpty()) continue;
 
-                Object first = tokens.get(0);
-                String top;
-                if (first instanceof String) {
-                    top = (String) first;
-                } else {
-                    // path may start with [0] when root is array, use pseudo key "[]"
-                    top = "[]";
-                }
-                String kind = types.get(top);
-                if (kind == null) continue;
+                    Object val = parseScalarOrJson(p.getValue());
 
-                Object val = parseScalarOrJson(p.getValue());
+                    // 1) Do NOT wrap unless we are setting the entire array variable itself
+                    //    Whole array means the path is exactly the top-level key, so tokens.size() == 1.
+                    boolean settingWholeArray = tokens.size() == 1;
 
-                // 1) Do NOT wrap unless we are setting the entire array variable itself
-                //    Whole array means the path is exactly the top-level key, so tokens.size() == 1.
-                boolean settingWholeArray = tokens.size() == 1;
+                    if ("array".equals(kind) && settingWholeArray && !(val instanceof java.util.List)) {
+                        val = java.util.List.of(val);
+                    }
 
-                if ("array".equals(kind) && settingWholeArray && !(val instanceof java.util.List)) {
-                    val = java.util.List.of(val);
-                }
+                    // 2) If value is an empty string, skip the override
+                    //  This prevents wiping out the spec example "string" for photoUrls[0].
+                    if (val instanceof String && ((String) val).isEmpty()) {
+                        continue;
+                    }
 
-                // 2) If value is an empty string, skip the override
-                //  This prevents wiping out the spec example "string" for photoUrls[0].
-                if (val instanceof String && ((String) val).isEmpty()) {
-                    continue;
-                }
+                    // If setting a whole object key with a scalar, ignore
+                    if ("object".equals(kind) && tokens.size() == 1 && !(val instanceof java.util.Map)) {
+                        continue;
+                    }
 
-                // If setting a whole object key with a scalar, ignore
-                if ("object".equals(kind) && tokens.size() == 1 && !(val instanceof java.util.Map)) {
-                    continue;
+                    if (root == null) root = copyJsonTree(body.tree);
+                    setJsonPathValue(root, normalized, val);
                 }
-
-                setJsonPathValue(root, normalized, val);
-
             }
-            return Json.mapper().writeValueAsString(root);
+            return root == null ? body.render() : Json.mapper().writeValueAsString(root);
         } catch (Throwable t) {
-            return json;
+            return body.render();
         }
     }
 
-    private void applyBodyOverridesToMap(Map<String, Object> map, Map<String, Parameter> store, String prefix) {
-        if (map == null || store == null) return;
-        for (Parameter p : store.values()) {
-            if (!"body".equalsIgnoreCase(p.getIn())) continue;
-            if (p.getValue() == null) continue;
+    /** Copies the maps and lists of a parsed JSON tree; scalars are immutable and shared. */
+    private static Object copyJsonTree(Object node) {
+        if (node instanceof Map<?, ?> m) {
+            Map<String, Object> out = new LinkedHashMap<>(m.size() * 2);
+            for (Map.Entry<?, ?> e : m.entrySet()) {
+                out.put(String.valueOf(e.getKey()), copyJsonTree(e.getValue()));
+            }
+            return out;
+        }
+        if (node instanceof List<?> l) {
+            List<Object> out = new ArrayList<>(l.size());
+            for (Object o : l) out.add(copyJsonTree(o));
+            return out;
+        }
+        return node;
+    }
+
+    private void applyBodyOverridesToMap(Map<String, Object> map, ParameterIndex params) {
+        if (map == null || params == null) return;
+        for (String key : new ArrayList<>(map.keySet())) {
+            for (Parameter p : params.bodyParamsUnder(key)) {
+                if (p.getValue() == null) continue;
 
-            String path = p.getJsonPath();
-            if (path == null) continue;
+                // Only simple top-level keys apply to www-form or multipart
+                if (!key.equals(p.getJsonPath())) continue;
 
-            // Only simple top-level keys apply to www-form or multipart
-            if (!path.contains(".") && !path.contains("[") && !path.contains("]")) {
-                if (!map.containsKey(path)) {
-                    continue;
-                }
-                Object existing = map.get(path);
+                Object existing = map.get(key);
                 Object val = p.getValue();
                 if (existing instanceof java.util.List && !(val instanceof java.util.List)) {
                     val = java.util.List.of(val);
                 }
-                map.put(path, val);
+                map.put(key, val);
             }
         }
     }
@@ -1332,6 +1135,18 @@ public class RequestFactory {
                 : p;
     }
 
+    /** Top-level body keys overrides may target, with their types; "[]" stands for a root array. */
+    private Map<String, String> overrideTargets(Schema<?> schema) {
+        if (schema == null) return Map.of();
+        Map<SchemaKey, Map<String, String>> overrideTargets = compiled.get().overrideTargets();
+        Map<String, String> cached = overrideTargets.get(new SchemaKey(schema));
+        if (cached == null) {
+            cached = Collections.unmodifiableMap(topLevelTypes(schema));
+            overrideTargets.put(new SchemaKey(schema), cached);
+        }
+        return cached;
+    }
+
     private Map<String, String> topLevelTypes(Schema<?> schema) {
         Map<String, String> out = new LinkedHashMap<>();
         if (schema == null) return out;
@@ -1357,78 +1172,46 @@ public class RequestFactory {
         return out;
     }
 
+    /**
+     * One request per target server when iterating across all servers, else just the built request.
+     * The request is built once; each further server gets a copy with its service, base path and
+     * Host header swapped, sharing the body bytes.
+     */
     public List<HttpRequest> buildRequestsForBulkSend(Endpoint endpoint) {
-        List<String> bases = resolveServerBaseUrls();
+        return buildRequestsForBulkSend(endpoint, context.getParameterSnapshot());
+    }
+
+    public List<HttpRequest> buildRequestsForBulkSend(Endpoint endpoint, ParameterSnapshot parameters) {
         List<HttpRequest> out = new ArrayList<>();
-        if (bases.isEmpty()) return out;
 
-        HttpRequest baseReq = buildRequest(endpoint);
+        // One snapshot for the base build and the fan-out, so the origin is among the targets
+        ServerSnapshot servers = currentServers();
+        HttpRequest baseReq = buildRequest(endpoint, servers, parameters);
         if (baseReq == null) return out;
 
-        if (!context.isIterateAcrossAllServers() || bases.size() == 1) {
+        if (servers.targets.size() <= 1) {
             out.add(baseReq);
             return out;
         }
-
-        String originalBasePath = "";
-        try {
-            URL first = bases.get(0).startsWith("/")
-                    ? new URL(new URL(Objects.requireNonNull(context.getApiHost())), bases.get(0))
-                    : new URL(bases.get(0));
-            originalBasePath = first.getPath();
-            if ("/".equals(originalBasePath)) originalBasePath = "";
-            if (originalBasePath.endsWith("/")) {
-                originalBasePath = originalBasePath.substring(0, originalBasePath.length() - 1);
-            }
-        } catch (Throwable ignored) {
-        }
+        ServerSnapshot.Target origin = servers.primary;
 
         String baseReqPath = baseReq.path();
         String pathRemainder = baseReqPath;
+        String originalBasePath = origin.basePath();
         if (!originalBasePath.isEmpty() && baseReqPath.startsWith(originalBasePath)) {
             pathRemainder = baseReqPath.substring(originalBasePath.length());
             if (!pathRemainder.startsWith("/")) pathRemainder = "/" + pathRemainder;
         }
 
-        for (String base : bases) {
-            try {
-                URL u = base.startsWith("/")
-                        ? new URL(new URL(Objects.requireNonNull(context.getApiHost())), base)
-                        : new URL(base);
-
-                int port = u.getPort() == -1 ? u.getDefaultPort() : u.getPort();
-                boolean secure = "https".equalsIgnoreCase(u.getProtocol());
-                HttpService svc = httpService(u.getHost(), port, secure);
-
-                String newBasePath = u.getPath();
-                if ("/".equals(newBasePath)) newBasePath = "";
-                if (newBasePath.endsWith("/")) {
-                    newBasePath = newBasePath.substring(0, newBasePath.length() - 1);
-                }
-                String finalPath = joinUrl(newBasePath, pathRemainder);
-
-                List<HttpHeader> newHeaders = new ArrayList<>();
-                for (HttpHeader h : baseReq.headers()) {
-                    if (!h.name().equalsIgnoreCase("Host")) {
-                        newHeaders.add(h);
-                    }
-                }
-                String hostValue = u.getHost();
-                if ((secure && port != 443) || (!secure && port != 80)) {
-                    hostValue = hostValue + ":" + port;
-                }
-                newHeaders.add(httpHeader("Host", hostValue));
-
-                HttpRequest copy = HttpRequest.httpRequest()
-                        .withService(svc)
-                        .withPath(finalPath)
-                        .withMethod(baseReq.method())
-                        .withAddedHeaders(newHeaders)
-                        .withBody(baseReq.body().toString());
-
-                out.add(copy);
-            } catch (Throwable ignored) {
+        for (ServerSnapshot.Target t : servers.targets) {
+            if (t == origin) {
+                out.add(baseReq);
+                continue;
             }
+            out.add(baseReq
+                    .withService(t.service())
+                    .withPath(joinUrl(t.basePath(), pathRemainder))
+                    .withUpdatedHeader("Host", t.hostHeader()));
         }
         return out;
     }
@@ -1441,21 +1224,47 @@ public class RequestFactory {
         return base + path;
     }
 
-    // Percent-encode for path segment safety
-    private String encodePathSegment(String s) {
-        StringBuilder out = new StringBuilder();
-        for (char c : s.toCharArray()) {
-            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
-                    || c == '-' || c == '_' || c == '.' || c == '~') {
-                out.append(c);
-            } else {
-                byte[] b = String.valueOf(c).getBytes(StandardCharsets.UTF_8);
-                for (byte v : b) {
-                    out.append('%').append(String.format("%02X", v));
-                }
-            }
+    /**
+     * Templates compiled for one spec version, plus the bodies synthesized from its schemas, which are
+     * identical on every build until the spec changes. Endpoint uses identity equality.
+     */
+    private record Compiled(long specVersion,
+                            Map<Endpoint, RequestTemplate> templates,
+                            Map<SchemaKey, JsonBody> jsonSkeletons,
+                            Map<SchemaKey, Map<String, Object>> formSkeletons,
+                            Map<SchemaKey, Map<String, String>> overrideTargets) {
+        Compiled(long specVersion) {
+            this(specVersion, new ConcurrentHashMap<>(), new ConcurrentHashMap<>(),
+                    new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+        }
+    }
+
+    /** Swagger Schema equality is deep, so schemas are cached by identity. */
+    private record SchemaKey(Schema<?> schema) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof SchemaKey other && other.schema == schema;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(schema);
+        }
+    }
+
+    /** A JSON body as a parsed tree and, when already known, its rendering. */
+    private class JsonBody {
+        final Object tree;
+        final String rendered;
+
+        JsonBody(Object tree, String rendered) {
+            this.tree = tree;
+            this.rendered = rendered;
+        }
+
+        String render() {
+            return rendered != null ? rendered : renderJson(tree);
         }
-        return out.toString();
     }
 
     private static class BuiltBody {
@@ -1472,25 +1281,8 @@ public class RequestFactory {
         }
     }
 
-    private static String wildcardArrays(String path) {
-        if (path == null) return "";
-        return path.replaceAll("\\[\\d+\\]", "[]");
-    }
-
     private static String wildcardToIndex(String path) {
         if (path == null) return "";
         return path.replace("[]", "[0]");
     }
-
-    private Parameter findParam(Map<String, Parameter> store, String in, String name) {
-        if (store == null || in == null || name == null) return null;
-        for (Parameter p : store.values()) {
-            if (p == null) continue;
-            if (!in.equalsIgnoreCase(p.getIn())) continue;
-            if (p.getName() != null && p.getName().equalsIgnoreCase(name)) {
-                return p;
-            }
-        }
-        return null;
-    }
 }
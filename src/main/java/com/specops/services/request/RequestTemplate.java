@@ -0,0 +1,98 @@
+package com.specops.services.request;
+
+import com.specops.domain.Endpoint;
+import io.swagger.v3.oas.models.media.MediaType;
+import io.swagger.v3.oas.models.parameters.RequestBody;
+import io.swagger.v3.oas.models.security.SecurityRequirement;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+
+/**
+ * Everything RequestFactory derives from the spec for one endpoint, compiled once.
+ * A build only looks up store values and auth tokens and fills them into this shape.
+ * Stamped with the context versions it was compiled against; RequestFactory recompiles
+ * when the spec, server selection or header rules move on.
+ */
+final class RequestTemplate {
+
+    /**
+     * One spec parameter with its fallback precomputed from example, schema default or first enum value.
+     *
+     * @param fallback value used when the store has none, or null
+     */
+    record ParamSlot(String name, String fallback) {
+    }
+
+    final Endpoint endpoint;
+    final List<ParamSlot> pathParams;
+    final PathTemplate path;
+    final List<ParamSlot> headerParams;
+    final List<ParamSlot> cookieParams;
+    final List<ParamSlot> queryParams;
+
+    /** Dereferenced request body, or null. */
+    final RequestBody requestBody;
+
+    /** Effective security requirements: operation-level, else global. */
+    final List<SecurityRequirement> security;
+
+    /** Enabled header rules whose scope matches this endpoint and server, in rule order. */
+    final List<CompiledHeaderRule> headerRules;
+
+    final long specVersion;
+    final long serversVersion;
+    final long headerRulesVersion;
+
+    // Rebuilt when auth tokens change, which does not otherwise affect the template
+    private volatile AuthPlan authPlan;
+
+    // Media entries ranked per desired Content-Type; the desired type comes from store values
+    private final Map<String, List<Map.Entry<String, MediaType>>> rankedMedia = new ConcurrentHashMap<>();
+
+    RequestTemplate(Endpoint endpoint,
+                    List<ParamSlot> pathParams,
+                    List<ParamSlot> headerParams,
+                    List<ParamSlot> cookieParams,
+                    List<ParamSlot> queryParams,
+                    RequestBody requestBody,
+                    List<SecurityRequirement> security,
+                    List<CompiledHeaderRule> headerRules,
+                    long specVersion,
+                    long serversVersion,
+                    long headerRulesVersion) {
+        this.endpoint = endpoint;
+        this.pathParams = List.copyOf(pathParams);
+        this.path = PathTemplate.compile(endpoint.getPath(), pathParams.stream().map(ParamSlot::name).toList());
+        this.headerParams = List.copyOf(headerParams);
+        this.cookieParams = List.copyOf(cookieParams);
+        this.queryParams = List.copyOf(queryParams);
+        this.requestBody = requestBody;
+        this.security = security;
+        this.headerRules = List.copyOf(headerRules);
+        this.specVersion = specVersion;
+        this.serversVersion = serversVersion;
+        this.headerRulesVersion = headerRulesVersion;
+    }
+
+    boolean isCurrent(long spec, long servers, long rules) {
+        return specVersion == spec && serversVersion == servers && headerRulesVersion == rules;
+    }
+
+    AuthPlan authPlan(long tokensVersion, LongFunction<AuthPlan> compiler) {
+        AuthPlan plan = authPlan;
+        if (plan == null || plan.tokensVersion != tokensVersion) {
+            plan = compiler.apply(tokensVersion);
+            authPlan = plan;
+        }
+        return plan;
+    }
+
+    List<Map.Entry<String, MediaType>> rankedMedia(String desired,
+                                                   Function<String, List<Map.Entry<String, MediaType>>> ranker) {
+        return rankedMedia.computeIfAbsent(desired, ranker);
+    }
+}
@@ -0,0 +1,182 @@
+package com.specops.services.request;
+
+import burp.api.montoya.http.HttpService;
+import com.specops.SpecOpsContext;
+import io.swagger.v3.oas.models.OpenAPI;
+import io.swagger.v3.oas.models.servers.Server;
+import io.swagger.v3.oas.models.servers.ServerVariable;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static burp.api.montoya.http.HttpService.httpService;
+
+/**
+ * The spec's servers resolved against the selected server, variable overrides and API host, and parsed
+ * into what a request needs. Immutable and built once per server configuration: RequestFactory swaps in
+ * a new snapshot when the spec or server version moves on, so a build reads the target from a field.
+ */
+final class ServerSnapshot {
+
+    /**
+     * One parsed server.
+     *
+     * @param basePath   server path without trailing slash, "" for root
+     * @param hostHeader host plus port when not the scheme default
+     */
+    record Target(HttpService service, String host, String basePath, String hostHeader) {
+    }
+
+    final long specVersion;
+    final long serversVersion;
+
+    /** Server single builds and previews go to, or null when it cannot be resolved; see {@link #error}. */
+    final Target primary;
+    final String error;
+
+    /**
+     * Servers a bulk send fans out to, in spec order; the first is the primary.
+     * Holds only the primary unless iterating across all servers. Unparsable servers are left out.
+     */
+    final List<Target> targets;
+
+    private ServerSnapshot(long specVersion, long serversVersion, Target primary, String error, List<Target> targets) {
+        this.specVersion = specVersion;
+        this.serversVersion = serversVersion;
+        this.primary = primary;
+        this.error = error;
+        this.targets = targets;
+    }
+
+    boolean isCurrent(long spec, long servers) {
+        return specVersion == spec && serversVersion == servers;
+    }
+
+    static ServerSnapshot resolve(SpecOpsContext context, long spec, long servers) {
+        List<String> urls = resolveServerBaseUrls(context);
+        if (urls.isEmpty()) {
+            return failed(spec, servers, "Cannot build request: no server URLs resolved.");
+        }
+
+        String host = context.getApiHost();
+        String first = urls.get(0);
+        if (first.startsWith("/") && host == null) {
+            return failed(spec, servers,
+                    "Server URL is relative, but no host is defined. Please set one in the Specification tab.");
+        }
+
+        Target primary;
+        try {
+            primary = parse(first, host);
+        } catch (MalformedURLException e) {
+            return failed(spec, servers, "Invalid server URL in spec: " + first);
+        }
+
+        List<Target> targets = new ArrayList<>();
+        targets.add(primary);
+        for (int i = 1; i < urls.size(); i++) {
+            try {
+                Target t = parse(urls.get(i), host);
+                if (t != null) targets.add(t);
+            } catch (MalformedURLException ignored) {
+            }
+        }
+        return new ServerSnapshot(spec, servers, primary, null, List.copyOf(targets));
+    }
+
+    private static ServerSnapshot failed(long spec, long servers, String error) {
+        return new ServerSnapshot(spec, servers, null, error, List.of());
+    }
+
+    /**
+     * Resolve server base URLs from the spec based on user selection and overrides.
+     * If iterateAcrossAllServers is enabled, all servers are resolved and returned.
+     */
+    private static List<String> resolveServerBaseUrls(SpecOpsContext context) {
+        OpenAPI oa = context.getOpenAPI();
+        if (oa == null || oa.getServers() == null || oa.getServers().isEmpty()) {
+            return List.of();
+        }
+        List<Server> servers = oa.getServers();
+
+        if (context.isIterateAcrossAllServers()) {
+            List<String> out = new ArrayList<>();
+            for (int i = 0; i < servers.size(); i++) {
+                out.add(resolveServerUrlWithVars(context, servers.get(i), i));
+            }
+            return out;
+        } else {
+            int idx = Math.min(Math.max(context.getSelectedServerIndex(), 0), servers.size() - 1);
+            return List.of(resolveServerUrlWithVars(context, servers.get(idx), idx));
+        }
+    }
+
+    /** Fills {name} placeholders in one pass; unknown names are left as written. */
+    private static String resolveServerUrlWithVars(SpecOpsContext context, Server server, int serverIndex) {
+        if (server == null || server.getUrl() == null) return "";
+        String url = server.getUrl();
+        if (url.indexOf('{') < 0) return url;
+
+        Map<String, String> vals = new HashMap<>();
+        if (server.getVariables() != null) {
+            for (Map.Entry<String, ServerVariable> e : server.getVariables().entrySet()) {
+                String def = (e.getValue() != null && e.getValue().getDefault() != null)
+                        ? e.getValue().getDefault()
+                        : "";
+                vals.put(e.getKey(), def);
+            }
+        }
+        vals.putAll(context.getServerVariableOverrides(serverIndex));
+
+        StringBuilder sb = new StringBuilder(url.length() + 16);
+        int from = 0;
+        while (true) {
+            int open = url.indexOf('{', from);
+            int close = open < 0 ? -1 : url.indexOf('}', open + 1);
+            if (close < 0) break;
+            String name = url.substring(open + 1, close);
+            sb.append(url, from, open);
+            if (vals.containsKey(name)) {
+                String v = vals.get(name);
+                sb.append(v == null ? "" : v);
+            } else {
+                sb.append(url, open, close + 1);
+            }
+            from = close + 1;
+        }
+        return sb.append(url, from, url.length()).toString();
+    }
+
+    /**
+     * @return null when the URL is relative and no host is set
+     */
+    private static Target parse(String serverUrl, String apiHost) throws MalformedURLException {
+        URL parsed;
+        if (serverUrl.startsWith("/")) {
+            if (apiHost == null) return null;
+            parsed = new URL(new URL(apiHost), serverUrl);
+        } else {
+            parsed = new URL(serverUrl);
+        }
+
+        int port = parsed.getPort() == -1 ? parsed.getDefaultPort() : parsed.getPort();
+        boolean secure = "https".equalsIgnoreCase(parsed.getProtocol());
+        HttpService service = httpService(parsed.getHost(), port, secure);
+
+        String basePath = parsed.getPath().equals("/") ? "" : parsed.getPath();
+        if (basePath.endsWith("/")) {
+            basePath = basePath.substring(0, basePath.length() - 1);
+        }
+
+        String hostValue = parsed.getHost();
+        if ((secure && port != 443) || (!secure && port != 80)) {
+            hostValue = hostValue + ":" + port;
+        }
+
+        return new Target(service, parsed.getHost(), basePath, hostValue);
+    }
+}
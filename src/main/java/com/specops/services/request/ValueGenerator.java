@@ -1,6 +1,7 @@
 package com.specops.services.request;
 
 import burp.api.montoya.core.ByteArray;
+import com.specops.ParameterTransaction;
 import com.specops.SpecOpsContext;
 import com.specops.domain.Parameter;
 import com.fasterxml.jackson.databind.JsonNode;
@@ -27,10 +28,12 @@ public class ValueGenerator {
         GROUP_KEY = key == null ? GroupKey.NAME_IN : key;
     }
 
-    public static int generateValues(Map<String, Parameter> parameterStore, String typeFilter) {
+    /** Fills empty, unlocked parameters; the changes are staged in the transaction. */
+    public static int generateValues(Map<String, Parameter> parameterStore, ParameterTransaction tx, String typeFilter) {
         int count = 0;
         groupCache.clear(); // important per-run reset
-        for (Parameter param : parameterStore.values()) {
+        for (Parameter live : parameterStore.values()) {
+            Parameter param = tx.current(live);
             if (!param.isLocked() && empty(param.getValue())) {
                 boolean typeMatch = typeFilter == null
                         || eq(param.getType(), typeFilter)
@@ -41,8 +44,9 @@ public class ValueGenerator {
 
                 String value = groupCache.computeIfAbsent(gk, k -> generateValueDeterministic(param, k));
 
-                param.setValue(value);
-                param.setSource(Parameter.ValueSource.GENERATED);
+                Parameter staged = tx.edit(live);
+                staged.setValue(value);
+                staged.setSource(Parameter.ValueSource.GENERATED);
                 count++;
             }
         }
@@ -156,8 +160,9 @@ public class ValueGenerator {
      * <p>Partial updates are intentionally allowed: if the JSON document is valid, each matching
      * parameter entry is applied independently, while unknown or malformed entries are skipped.
      * Parsing or top-level format errors are propagated to the caller.
+     * Changes are staged in the transaction, so nothing is applied unless the caller commits it.
      */
-    public static int importValues(Map<String, Parameter> parameterStore, ByteArray content) {
+    public static int importValues(Map<String, Parameter> parameterStore, ParameterTransaction tx, ByteArray content) {
         int updated = 0;
         try {
             JsonNode root = Json.mapper().readTree(content.getBytes());
@@ -186,10 +191,11 @@ public class ValueGenerator {
                 String newVal = optText(item, "value", "");
                 boolean isLocked = item.path("isLocked").asBoolean(false);
 
-                param.setValue(newVal);
-                param.setLocked(isLocked);
+                Parameter staged = tx.edit(param);
+                staged.setValue(newVal);
+                staged.setLocked(isLocked);
                 try {
-                    param.setSource(Parameter.ValueSource.IMPORTED);
+                    staged.setSource(Parameter.ValueSource.IMPORTED);
                 } catch (Throwable ignore) {  }
 
                 updated++;
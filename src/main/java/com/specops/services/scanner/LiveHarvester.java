@@ -0,0 +1,149 @@
+package com.specops.services.scanner;
+
+import burp.api.montoya.core.Registration;
+import burp.api.montoya.http.message.requests.HttpRequest;
+import burp.api.montoya.proxy.http.InterceptedRequest;
+import burp.api.montoya.proxy.http.ProxyRequestHandler;
+import burp.api.montoya.proxy.http.ProxyRequestReceivedAction;
+import burp.api.montoya.proxy.http.ProxyRequestToBeSentAction;
+import com.specops.ParameterTransaction;
+import com.specops.SpecOpsContext;
+import com.specops.domain.Parameter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fills the parameter store from proxy traffic as it passes, instead of scanning history afterwards.
+ * Only in-scope requests to the target domain are harvested. The proxy handler only checks scope and
+ * host and hands the request to a bounded queue, so browsing is never slowed down; when the queue is
+ * full the request is skipped. A background thread drains the queue in batches and applies the
+ * ProxyScanner extraction rules, one store transaction per batch.
+ */
+public class LiveHarvester implements ProxyRequestHandler {
+
+    private static final int QUEUE_CAPACITY = 1024;
+    private static final int MAX_BATCH = 256;
+
+    private final SpecOpsContext context;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private volatile String targetDomain;
+    private volatile BlockingQueue<HttpRequest> queue;
+    private volatile Registration registration;
+    private Thread worker;
+    private boolean unloadHandlerRegistered;
+
+    private final AtomicLong filled = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public LiveHarvester(SpecOpsContext context) {
+        this.context = context;
+    }
+
+    /** Starts harvesting requests to the domain and its subdomains, replacing any earlier target. */
+    public void start(String domain) {
+        lock.lock();
+        try {
+            stop();
+            if (!unloadHandlerRegistered) {
+                context.api.extension().registerUnloadingHandler(this::stop);
+                unloadHandlerRegistered = true;
+            }
+            targetDomain = domain.trim();
+            filled.set(0);
+            dropped.set(0);
+            BlockingQueue<HttpRequest> q = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+            queue = q;
+            worker = Thread.ofPlatform().daemon().name("SpecOps-live-harvester").start(() -> drain(q));
+            registration = context.api.proxy().registerRequestHandler(this);
+            context.api.logging().logToOutput("Live harvesting parameters from " + targetDomain + ".");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void stop() {
+        lock.lock();
+        try {
+            if (registration == null) return;
+            registration.deregister();
+            registration = null;
+            worker.interrupt();
+            worker = null;
+            queue = null;
+            context.api.logging().logToOutput("Live harvesting stopped. Filled " + filled.get()
+                    + " parameters; skipped " + dropped.get() + " requests while busy.");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isRunning() {
+        return registration != null;
+    }
+
+    @Override
+    public ProxyRequestReceivedAction handleRequestReceived(InterceptedRequest interceptedRequest) {
+        return ProxyRequestReceivedAction.continueWith(interceptedRequest);
+    }
+
+    @Override
+    public ProxyRequestToBeSentAction handleRequestToBeSent(InterceptedRequest interceptedRequest) {
+        // Same request the scanner reads from history as finalRequest(), after any interception edits
+        BlockingQueue<HttpRequest> q = queue;
+        String domain = targetDomain;
+        if (q != null && domain != null
+                && interceptedRequest.isInScope()
+                && ProxyScanner.hostMatchesTarget(interceptedRequest.httpService().host(), domain)
+                && !q.offer(interceptedRequest)) {
+            dropped.incrementAndGet();
+        }
+        return ProxyRequestToBeSentAction.continueWith(interceptedRequest);
+    }
+
+    private void drain(BlockingQueue<HttpRequest> q) {
+        List<HttpRequest> batch = new ArrayList<>(MAX_BATCH);
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                batch.add(q.take());
+                q.drainTo(batch, MAX_BATCH - 1);
+                try {
+                    harvest(batch);
+                } catch (RuntimeException e) {
+                    context.api.logging().logToError("Live harvesting failed for a batch: " + e.getMessage());
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void harvest(List<HttpRequest> batch) {
+        List<Parameter> candidates = new ArrayList<>();
+        for (Parameter p : context.getGlobalParameterStore().values()) {
+            if (ProxyScanner.canPopulateFromProxy(p) && WantedParameters.isIndexable(p)) candidates.add(p);
+        }
+        WantedParameters wanted = WantedParameters.of(candidates);
+        if (wanted.isEmpty()) return;
+
+        try (ParameterTransaction tx = context.beginParameterTransaction()) {
+            // Newest first, matching the history scan
+            for (int i = batch.size() - 1; i >= 0 && !wanted.isEmpty(); i--) {
+                wanted.match(batch.get(i), (live, value) -> {
+                    if (!wanted.remove(live)) return;
+                    Parameter staged = tx.edit(live);
+                    staged.setValue(value);
+                    staged.setSource(Parameter.ValueSource.PROXY);
+                    filled.incrementAndGet();
+                });
+            }
+            tx.commit();
+        }
+    }
+}
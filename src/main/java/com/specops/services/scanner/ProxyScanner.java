@@ -1,8 +1,8 @@
 package com.specops.services.scanner;
 
-import burp.api.montoya.http.message.params.HttpParameterType;
 import burp.api.montoya.proxy.ProxyHistoryFilter;
 import burp.api.montoya.proxy.ProxyHttpRequestResponse;
+import com.specops.ParameterTransaction;
 import com.specops.SpecOpsContext;
 import com.specops.domain.Parameter;
 import io.swagger.v3.core.util.Json;
@@ -10,9 +10,14 @@ import io.swagger.v3.core.util.Json;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 /**
  * Scans Burp's Proxy history to find real-world values
@@ -20,13 +25,32 @@ import java.util.stream.Collectors;
  */
 public class ProxyScanner {
 
+    // History entries per parallel scan task
+    private static final int CHUNK_SIZE = 1024;
+
     private final SpecOpsContext context;
 
+    // Per normalized target domain, so repeated scans only read new history
+    private final Map<String, Watermark> watermarks = new ConcurrentHashMap<>();
+
+    /**
+     * Highest proxy id scanned for a domain.
+     *
+     * @param unfound canonical keys of the parameters looked for in every entry up to lastId and not found;
+     *                any other parameter has not been looked for in that range
+     */
+    private record Watermark(int lastId, Set<String> unfound) {
+    }
+
+    /** A value found for a parameter and the position in history it was found at. */
+    private record Candidate(int historyIndex, String value) {
+    }
+
     public ProxyScanner(SpecOpsContext context) {
         this.context = context;
     }
 
-    private static Map<String, String> parseCookieHeader(String cookieHeader) {
+    static Map<String, String> parseCookieHeader(String cookieHeader) {
         Map<String, String> out = new HashMap<>();
         if (cookieHeader == null || cookieHeader.isEmpty()) {
             return out;
@@ -41,7 +65,7 @@ public class ProxyScanner {
         return out;
     }
 
-    private static boolean canPopulateFromProxy(Parameter p) {
+    static boolean canPopulateFromProxy(Parameter p) {
         if (p.isLocked()) {
             return false;
         }
@@ -57,7 +81,7 @@ public class ProxyScanner {
                 || source == Parameter.ValueSource.GENERATED;
     }
 
-    private static Map<String, String> extractBodyValues(String contentType, String bodyText) {
+    static Map<String, String> extractBodyValues(String contentType, String bodyText) {
         Map<String, String> out = new HashMap<>();
         if (bodyText == null || bodyText.isBlank()) {
             return out;
@@ -259,7 +283,7 @@ public class ProxyScanner {
         return normalized;
     }
 
-    private static boolean hostMatchesTarget(String host, String targetDomain) {
+    static boolean hostMatchesTarget(String host, String targetDomain) {
         String normalizedHost = normalizeHost(host);
         String normalizedTarget = normalizeHost(targetDomain);
         if (normalizedHost.isEmpty() || normalizedTarget.isEmpty()) {
@@ -282,21 +306,128 @@ public class ProxyScanner {
     /**
      * Scans the proxy history for requests to the specified domain and updates
      * the Global Parameter Store with any discovered values.
+     * Parameters a previous scan of the domain looked for and did not find are only looked for in
+     * entries added since; every other parameter, such as one added, cleared or unlocked since,
+     * is looked for in the whole history. Use {@link #scanAndPopulate(String, boolean)} to force a full rescan.
      */
     public int scanAndPopulate(String targetDomain) {
-        int updatedCount = 0;
-        Map<String, Parameter> paramStore = context.getGlobalParameterStore();
+        return scanAndPopulate(targetDomain, false);
+    }
 
+    /**
+     * @param fullRescan read the whole history for every parameter, ignoring earlier scans of the domain
+     */
+    public int scanAndPopulate(String targetDomain, boolean fullRescan) {
         String normalizedTargetDomain = targetDomain == null ? "" : targetDomain.trim();
         if (normalizedTargetDomain.isEmpty()) {
             return 0;
         }
 
-        // Request only matching entries from proxy history when ProxyHistoryFilter is available.
-        List<ProxyHttpRequestResponse> history = filteredHistory(normalizedTargetDomain);
+        String watermarkKey = normalizeHost(normalizedTargetDomain);
+        Watermark previous = fullRescan ? null : watermarks.get(watermarkKey);
+        int afterId = previous == null ? -1 : previous.lastId();
 
-        // Iterate newest first
-        for (int i = history.size() - 1; i >= 0; i--) {
+        List<Parameter> wanted = new ArrayList<>();
+        for (Parameter p : context.getGlobalParameterStore().values()) {
+            if (canPopulateFromProxy(p) && WantedParameters.isIndexable(p)) wanted.add(p);
+        }
+        if (wanted.isEmpty()) return 0;
+
+        // Entries up to the watermark were already searched for the parameters that were left unfound
+        List<Parameter> searchedBefore = new ArrayList<>();
+        List<Parameter> neverSearched = new ArrayList<>();
+        for (Parameter p : wanted) {
+            if (previous != null && previous.unfound().contains(SpecOpsContext.canonicalKey(p))) searchedBefore.add(p);
+            else neverSearched.add(p);
+        }
+
+        // Found values become visible together once the whole history has been scanned
+        try (ParameterTransaction tx = context.beginParameterTransaction()) {
+            List<ProxyHttpRequestResponse> history = filteredHistory(normalizedTargetDomain,
+                    neverSearched.isEmpty() ? afterId : -1);
+            List<ProxyHttpRequestResponse> newEntries = neverSearched.isEmpty() || afterId < 0
+                    ? history
+                    : history.stream().filter(entry -> entry.id() > afterId).toList();
+
+            // The two groups are disjoint, so each keeps the newest value of its own range
+            Map<Parameter, Candidate> found = new IdentityHashMap<>();
+            found.putAll(scanHistory(neverSearched, history, normalizedTargetDomain));
+            found.putAll(scanHistory(searchedBefore, newEntries, normalizedTargetDomain));
+
+            found.forEach((live, candidate) -> {
+                Parameter staged = tx.edit(live);
+                staged.setValue(candidate.value());
+                staged.setSource(Parameter.ValueSource.PROXY);
+            });
+            tx.commit();
+
+            int lastId = afterId;
+            for (ProxyHttpRequestResponse phr : history) lastId = Math.max(lastId, phr.id());
+            Set<String> unfound = new HashSet<>();
+            for (Parameter p : wanted) {
+                if (!found.containsKey(p)) unfound.add(SpecOpsContext.canonicalKey(p));
+            }
+            watermarks.put(watermarkKey, new Watermark(lastId, Set.copyOf(unfound)));
+            return found.size();
+        }
+    }
+
+    /**
+     * Looks for the parameters in the history, newest entry first.
+     *
+     * @return the newest value found for each parameter that was found
+     */
+    private Map<Parameter, Candidate> scanHistory(List<Parameter> parameters, List<ProxyHttpRequestResponse> history,
+                                                  String normalizedTargetDomain) {
+        Map<Parameter, Candidate> found = new IdentityHashMap<>();
+        if (parameters.isEmpty()) return found;
+
+        // Chunks are scanned in waves, newest first, one chunk per core. A wave only looks for
+        // parameters that newer waves did not fill, and no wave starts once everything is filled.
+        List<Parameter> remaining = parameters;
+        AtomicInteger scanned = new AtomicInteger();
+        int waveSize = Math.max(1, Runtime.getRuntime().availableProcessors());
+        int end = history.size();
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            while (end > 0 && !remaining.isEmpty()) {
+                List<Future<Map<Parameter, Candidate>>> wave = new ArrayList<>();
+                List<Parameter> wanted = remaining;
+                for (int c = 0; c < waveSize && end > 0; c++) {
+                    int hi = end;
+                    int lo = Math.max(0, end - CHUNK_SIZE);
+                    wave.add(pool.submit(() -> scanChunk(history, lo, hi, wanted, normalizedTargetDomain, scanned)));
+                    end = lo;
+                }
+                for (Future<Map<Parameter, Candidate>> chunk : wave) {
+                    // Newest wins across chunks
+                    chunk.get().forEach((p, c) -> found.merge(p, c,
+                            (a, b) -> a.historyIndex() >= b.historyIndex() ? a : b));
+                }
+                remaining = remaining.stream().filter(p -> !found.containsKey(p)).toList();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Proxy scan interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            throw new IllegalStateException("Proxy scan failed: " + cause.getMessage(), cause);
+        }
+
+        context.api.logging().logToOutput("ProxyScanner filled " + found.size() + " of " + parameters.size()
+                + " parameters from " + scanned.get() + " of " + history.size() + " history entries.");
+        return found;
+    }
+
+    /**
+     * Scans history entries [lo, hi) newest first for the given parameters.
+     * Runs on a pool thread; reads the history and parameters but changes nothing.
+     */
+    private static Map<Parameter, Candidate> scanChunk(List<ProxyHttpRequestResponse> history, int lo, int hi,
+                                                       List<Parameter> parameters, String normalizedTargetDomain,
+                                                       AtomicInteger scanned) {
+        WantedParameters wanted = WantedParameters.of(parameters);
+        Map<Parameter, Candidate> found = new IdentityHashMap<>();
+        for (int i = hi - 1; i >= lo && !wanted.isEmpty(); i--) {
             ProxyHttpRequestResponse phr = history.get(i);
 
             // Defensive host check: protects correctness when filtered API is unavailable.
@@ -305,90 +436,24 @@ public class ProxyScanner {
                 continue;
             }
 
-            // Cache lookups for this request
-            var req = phr.finalRequest();
-
-            // Pre-parse Cookie header into a Map<String,String>
-            Map<String, String> cookieMap = parseCookieHeader(req.headerValue("Cookie"));
-
-            // Pre-index URL parameters into a case-insensitive map
-            Map<String, String> urlParams = req.parameters(HttpParameterType.URL).stream()
-                    .collect(Collectors.toMap(
-                            p -> p.name().toLowerCase(Locale.ROOT),
-                            p -> p.value(),
-                            (a, b) -> a)); // keep first
-
-            // Pre-index body values from supported content types (json/form/multipart)
-            Map<String, String> bodyValues = extractBodyValues(
-                    req.headerValue("Content-Type"),
-                    req.body().toString());
-
-            for (Parameter p : paramStore.values()) {
-                if (!canPopulateFromProxy(p)) {
-                    continue;
-                }
-
-                Optional<String> found = Optional.empty();
-                String pname = p.getName();
-
-                switch (p.getIn().toLowerCase(Locale.ROOT)) {
-                    case "header":
-                        String headerVal = req.headerValue(pname);
-                        if (headerVal != null && !headerVal.isEmpty()) {
-                            found = Optional.of(headerVal);
-                        }
-                        break;
-
-                    case "cookie":
-                        String cv = cookieMap.get(pname.toLowerCase(Locale.ROOT));
-                        if (cv != null && !cv.isEmpty()) {
-                            found = Optional.of(cv);
-                        }
-                        break;
-
-                    case "query":
-                        String qv = urlParams.get(pname.toLowerCase(Locale.ROOT));
-                        if (qv == null || qv.isEmpty()) {
-                            // Fallback to direct accessor in case-insensitive manner
-                            qv = req.parameterValue(pname, HttpParameterType.URL);
-                        }
-                        if (qv != null && !qv.isEmpty()) {
-                            found = Optional.of(qv);
-                        }
-                        break;
-
-                    case "body":
-                        String bodyKey = p.getJsonPath();
-                        if (bodyKey == null || bodyKey.isEmpty()) {
-                            bodyKey = pname;
-                        }
-
-                        String bv = bodyValues.get(bodyKey.toLowerCase(Locale.ROOT));
-                        if ((bv == null || bv.isEmpty()) && pname != null && !pname.isEmpty()) {
-                            bv = bodyValues.get(pname.toLowerCase(Locale.ROOT));
-                        }
-                        if (bv != null && !bv.isEmpty()) {
-                            found = Optional.of(bv);
-                        }
-                        break;
-
-                    default:
-                        // path or others are not derived here
-                        break;
-                }
-
-                if (found.isPresent()) {
-                    p.setValue(found.get());
-                    p.setSource(Parameter.ValueSource.PROXY);
-                    updatedCount++;
-                }
-            }
+            // The first value found within the chunk is its newest one
+            int historyIndex = i;
+            wanted.match(phr.finalRequest(), (p, value) -> {
+                if (wanted.remove(p)) found.put(p, new Candidate(historyIndex, value));
+            });
+            scanned.incrementAndGet();
         }
-        return updatedCount;
+        return found;
     }
 
-    private List<ProxyHttpRequestResponse> filteredHistory(String targetDomain) {
+    /**
+     * Request only matching entries from proxy history when ProxyHistoryFilter is available.
+     *
+     * @param afterId only entries with a higher proxy id are wanted, or -1 for all
+     */
+    private List<ProxyHttpRequestResponse> filteredHistory(String targetDomain, int afterId) {
         ProxyHistoryFilter filter = entry -> {
+            if (entry.id() <= afterId) return false;
             String host = entry.finalRequest().httpService().host();
             return hostMatchesTarget(host, targetDomain);
         };
@@ -401,6 +466,8 @@ public class ProxyScanner {
         }
 
         context.api.logging().logToOutput("ProxyScanner using full proxy history path.");
-        return context.api.proxy().history();
+        List<ProxyHttpRequestResponse> history = context.api.proxy().history();
+        if (afterId < 0) return history;
+        return history.stream().filter(entry -> entry.id() > afterId).toList();
     }
 }
@@ -0,0 +1,203 @@
+package com.specops.services.scanner;
+
+import burp.api.montoya.http.message.HttpHeader;
+import burp.api.montoya.http.message.params.HttpParameterType;
+import burp.api.montoya.http.message.params.ParsedHttpParameter;
+import burp.api.montoya.http.message.requests.HttpRequest;
+import com.specops.domain.Parameter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Store parameters indexed by where a request would carry their value, so a proxy entry is matched
+ * by walking the headers, cookies, query parameters and body values it contains and probing the index,
+ * rather than by asking it for every parameter in the store. Filled parameters are removed, so the
+ * scanner can stop once nothing is left.
+ * Lookups follow the per-parameter rules the scanner used before:
+ * - header: first header with the name, case-insensitive
+ * - cookie: cookie with the name, case-insensitive
+ * - query: first non-empty URL parameter with the name, case-insensitive
+ * - body: value at the jsonPath (or the name when there is none), else the value under the name
+ */
+final class WantedParameters {
+
+    /** A body parameter with the key its value is looked up under first. */
+    private record BodyWant(Parameter parameter, String primaryKey) {
+    }
+
+    private final Map<String, List<Parameter>> headers = new HashMap<>();
+    private final Map<String, List<Parameter>> cookies = new HashMap<>();
+    private final Map<String, List<Parameter>> query = new HashMap<>();
+    private final Map<String, List<BodyWant>> bodyByPrimary = new HashMap<>();
+    private final Map<String, List<BodyWant>> bodyByName = new HashMap<>();
+    private int remaining;
+
+    private WantedParameters() {
+    }
+
+    static WantedParameters of(Collection<Parameter> parameters) {
+        WantedParameters w = new WantedParameters();
+        for (Parameter p : parameters) {
+            if (!isIndexable(p)) continue;
+            String name = lower(p.getName());
+            switch (lower(p.getIn())) {
+                case "header" -> add(w.headers, name, p);
+                case "cookie" -> add(w.cookies, name, p);
+                case "query" -> add(w.query, name, p);
+                case "body" -> {
+                    String primary = bodyPrimaryKey(p, name);
+                    BodyWant want = new BodyWant(p, primary);
+                    add(w.bodyByPrimary, primary, want);
+                    if (!name.isEmpty()) add(w.bodyByName, name, want);
+                }
+                default -> {
+                }
+            }
+            w.remaining++;
+        }
+        return w;
+    }
+
+    /** Whether a request can carry the parameter's value; path and other locations are not derived here. */
+    static boolean isIndexable(Parameter p) {
+        if (p == null || p.getIn() == null || p.getName() == null) return false;
+        return switch (lower(p.getIn())) {
+            case "header", "cookie", "query", "body" -> true;
+            default -> false;
+        };
+    }
+
+    /** Nothing left to look for. */
+    boolean isEmpty() {
+        return remaining == 0;
+    }
+
+    /** Number of parameters still wanted. */
+    int remaining() {
+        return remaining;
+    }
+
+    /**
+     * Stops looking for a parameter once it has been filled. Safe to call from the sink of {@link #match}:
+     * lists are replaced rather than modified, so a walk in progress keeps its view.
+     *
+     * @return false when the parameter was no longer wanted
+     */
+    boolean remove(Parameter p) {
+        String name = lower(p.getName());
+        boolean removed = switch (lower(p.getIn())) {
+            case "header" -> unfile(headers, name, p);
+            case "cookie" -> unfile(cookies, name, p);
+            case "query" -> unfile(query, name, p);
+            case "body" -> {
+                unfile(bodyByName, name, w -> w.parameter() == p);
+                yield unfile(bodyByPrimary, bodyPrimaryKey(p, name), w -> w.parameter() == p);
+            }
+            default -> false;
+        };
+        if (removed) remaining--;
+        return removed;
+    }
+
+    /**
+     * Reports each indexed parameter the request carries a non-empty value for.
+     * A parameter can be reported more than once; the sink decides whether a later report still applies.
+     */
+    void match(HttpRequest req, BiConsumer<Parameter, String> sink) {
+        if (!headers.isEmpty()) matchHeaders(req, sink);
+        if (!cookies.isEmpty()) matchCookies(req, sink);
+        if (!query.isEmpty()) matchQuery(req, sink);
+        if (!bodyByPrimary.isEmpty()) matchBody(req, sink);
+    }
+
+    private void matchHeaders(HttpRequest req, BiConsumer<Parameter, String> sink) {
+        Set<String> seen = new HashSet<>();
+        for (HttpHeader h : req.headers()) {
+            String name = lower(h.name());
+            List<Parameter> wanted = headers.get(name);
+            if (wanted == null || !seen.add(name)) continue;
+            String value = h.value();
+            if (value == null || value.isEmpty()) continue;
+            for (Parameter p : wanted) sink.accept(p, value);
+        }
+    }
+
+    private void matchCookies(HttpRequest req, BiConsumer<Parameter, String> sink) {
+        for (Map.Entry<String, String> e : ProxyScanner.parseCookieHeader(req.headerValue("Cookie")).entrySet()) {
+            List<Parameter> wanted = cookies.get(e.getKey());
+            if (wanted == null || e.getValue().isEmpty()) continue;
+            for (Parameter p : wanted) sink.accept(p, e.getValue());
+        }
+    }
+
+    private void matchQuery(HttpRequest req, BiConsumer<Parameter, String> sink) {
+        Set<String> found = new HashSet<>();
+        for (ParsedHttpParameter param : req.parameters(HttpParameterType.URL)) {
+            String name = lower(param.name());
+            List<Parameter> wanted = query.get(name);
+            String value = param.value();
+            if (wanted == null || value == null || value.isEmpty() || !found.add(name)) continue;
+            for (Parameter p : wanted) sink.accept(p, value);
+        }
+    }
+
+    private void matchBody(HttpRequest req, BiConsumer<Parameter, String> sink) {
+        Map<String, String> values = ProxyScanner.extractBodyValues(req.headerValue("Content-Type"), req.body().toString());
+        for (Map.Entry<String, String> e : values.entrySet()) {
+            String value = e.getValue();
+            if (value == null || value.isEmpty()) continue;
+
+            List<BodyWant> byPrimary = bodyByPrimary.get(e.getKey());
+            if (byPrimary != null) {
+                for (BodyWant w : byPrimary) sink.accept(w.parameter(), value);
+            }
+            List<BodyWant> byName = bodyByName.get(e.getKey());
+            if (byName != null) {
+                for (BodyWant w : byName) {
+                    // The name is only a fallback for a parameter whose own path is absent
+                    String atPrimary = values.get(w.primaryKey());
+                    if (atPrimary == null || atPrimary.isEmpty()) sink.accept(w.parameter(), value);
+                }
+            }
+        }
+    }
+
+    private static String bodyPrimaryKey(Parameter p, String lowerName) {
+        String jsonPath = p.getJsonPath();
+        return jsonPath == null || jsonPath.isEmpty() ? lowerName : lower(jsonPath);
+    }
+
+    private static <T> void add(Map<String, List<T>> index, String key, T value) {
+        index.computeIfAbsent(key, k -> new ArrayList<>(1)).add(value);
+    }
+
+    private static boolean unfile(Map<String, List<Parameter>> index, String key, Parameter p) {
+        return unfile(index, key, x -> x == p);
+    }
+
+    private static <T> boolean unfile(Map<String, List<T>> index, String key, Predicate<T> match) {
+        List<T> list = index.get(key);
+        if (list == null) return false;
+        List<T> kept = new ArrayList<>(list.size());
+        for (T x : list) {
+            if (!match.test(x)) kept.add(x);
+        }
+        if (kept.size() == list.size()) return false;
+        if (kept.isEmpty()) index.remove(key);
+        else index.put(key, kept);
+        return true;
+    }
+
+    private static String lower(String s) {
+        return s == null ? "" : s.toLowerCase(Locale.ROOT);
+    }
+}
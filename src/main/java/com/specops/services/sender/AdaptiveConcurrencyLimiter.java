@@ -0,0 +1,206 @@
+package com.specops.services.sender;
+
+import burp.api.montoya.http.HttpService;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Per-host in-flight limit tuned with AIMD from observed responses.
+ * - Additive increase: each fast response adds 1/limit, so the limit grows by one per round trip
+ *   while median latency stays within 25% of the best median seen for that host.
+ * - Multiplicative decrease: 429 and 503 halve the limit, at most once per round trip so a burst
+ *   of rejections from requests already in flight counts as one signal. Median latency above
+ *   twice the baseline shrinks the limit by 10%.
+ * - Retry-After on 429/503 holds all new requests to that host until the requested time,
+ *   at most {@link #MAX_HOLD_MILLIS}.
+ * {@link #cancel()} releases every waiting worker, so Stop never waits out a hold.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final int WINDOW = 16;
+    private static final double FLAT_LATENCY_RATIO = 1.25;
+    private static final double INFLATED_LATENCY_RATIO = 2.0;
+    private static final double BACKOFF_FACTOR = 0.5;
+    private static final double LATENCY_BACKOFF_FACTOR = 0.9;
+
+    /** Longest Retry-After hold honoured; a server asking for more is not allowed to park the run. */
+    public static final long MAX_HOLD_MILLIS = 60_000;
+
+    private final int initialLimit;
+    private final int maxLimit;
+    private final Map<String, HostState> hosts = new ConcurrentHashMap<>();
+
+    private volatile long latestHoldUntilNanos = System.nanoTime();
+    private volatile boolean cancelled;
+
+    /**
+     * @param initialLimit in-flight requests allowed per host before any feedback
+     * @param maxLimit     ceiling for the per-host limit, normally the worker count
+     */
+    public AdaptiveConcurrencyLimiter(int initialLimit, int maxLimit) {
+        this.maxLimit = Math.max(1, maxLimit);
+        this.initialLimit = Math.max(1, Math.min(initialLimit, this.maxLimit));
+    }
+
+    /**
+     * Blocks until the host has a free in-flight slot and no Retry-After hold is active.
+     *
+     * @return false when the limiter was cancelled; no slot was taken and none must be released
+     */
+    public boolean acquire(HttpService service) throws InterruptedException {
+        if (service == null) return !cancelled;
+        return stateFor(service).acquire();
+    }
+
+    /** Wakes every waiting worker and makes all later acquires fail. */
+    public void cancel() {
+        cancelled = true;
+        for (HostState state : hosts.values()) {
+            state.wakeAll();
+        }
+    }
+
+    /**
+     * Records the outcome of a request started with {@link #acquire(HttpService)}.
+     *
+     * @param statusCode   response status, or -1 when no response arrived
+     * @param retryAfterMs Retry-After delay from the response, or 0
+     */
+    public void release(HttpService service, long latencyMs, int statusCode, long retryAfterMs) {
+        if (service == null) return;
+        stateFor(service).release(latencyMs, statusCode, retryAfterMs);
+    }
+
+    /** True while any host is held by a Retry-After. */
+    public boolean isBackingOff() {
+        return System.nanoTime() - latestHoldUntilNanos < 0;
+    }
+
+    /** Current limit for a host, mainly for status display. */
+    public int currentLimit(HttpService service) {
+        HostState state = hosts.get(HostRateLimiter.hostKey(service));
+        return state == null ? initialLimit : state.currentLimit();
+    }
+
+    private HostState stateFor(HttpService service) {
+        return hosts.computeIfAbsent(HostRateLimiter.hostKey(service), k -> new HostState());
+    }
+
+    private final class HostState {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition changed = lock.newCondition();
+
+        private double limit = initialLimit;
+        private int inFlight;
+        private long holdUntilNanos;
+        private long lastDecreaseNanos;
+        // nanoTime has an arbitrary origin, so no value of lastDecreaseNanos can mean "never"
+        private boolean decreased;
+
+        private final long[] latencies = new long[WINDOW];
+        private int samples;
+        private long baselineP50 = -1;
+
+        boolean acquire() throws InterruptedException {
+            lock.lock();
+            try {
+                while (true) {
+                    if (cancelled) return false;
+                    long holdNanos = holdUntilNanos - System.nanoTime();
+                    if (holdNanos > 0) {
+                        changed.awaitNanos(holdNanos);
+                    } else if (inFlight >= (int) limit) {
+                        changed.await();
+                    } else {
+                        inFlight++;
+                        return true;
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void release(long latencyMs, int statusCode, long retryAfterMs) {
+            lock.lock();
+            try {
+                inFlight = Math.max(0, inFlight - 1);
+                long now = System.nanoTime();
+
+                if (statusCode == 429 || statusCode == 503) {
+                    if (retryAfterMs > 0) {
+                        long holdMs = Math.min(retryAfterMs, MAX_HOLD_MILLIS);
+                        holdUntilNanos = Math.max(holdUntilNanos, now + TimeUnit.MILLISECONDS.toNanos(holdMs));
+                        latestHoldUntilNanos = Math.max(latestHoldUntilNanos, holdUntilNanos);
+                    }
+                    decrease(BACKOFF_FACTOR, now);
+                } else if (statusCode > 0) {
+                    observeLatency(latencyMs, now);
+                }
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void wakeAll() {
+            lock.lock();
+            try {
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int currentLimit() {
+            lock.lock();
+            try {
+                return (int) limit;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void observeLatency(long latencyMs, long now) {
+            latencies[samples % WINDOW] = Math.max(0, latencyMs);
+            samples++;
+            if (samples < WINDOW) {
+                // Not enough samples for a stable median yet; keep ramping
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+                return;
+            }
+
+            long p50 = median();
+            if (baselineP50 < 0 || p50 < baselineP50) {
+                baselineP50 = p50;
+            }
+
+            long base = Math.max(1, baselineP50);
+            if (p50 <= base * FLAT_LATENCY_RATIO) {
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+            } else if (p50 > base * INFLATED_LATENCY_RATIO) {
+                decrease(LATENCY_BACKOFF_FACTOR, now);
+            }
+        }
+
+        private void decrease(double factor, long now) {
+            // One decrease per round trip: rejections already in flight describe the same overload
+            long rtt = TimeUnit.MILLISECONDS.toNanos(Math.max(1, baselineP50));
+            if (decreased && now - lastDecreaseNanos < rtt) return;
+            decreased = true;
+            lastDecreaseNanos = now;
+            limit = Math.max(1, limit * factor);
+        }
+
+        private long median() {
+            long[] copy = Arrays.copyOf(latencies, WINDOW);
+            Arrays.sort(copy);
+            return copy[WINDOW / 2];
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package com.specops.services.sender;
+
+import burp.api.montoya.http.HttpService;
+import burp.api.montoya.http.message.HttpRequestResponse;
+import burp.api.montoya.http.message.requests.HttpRequest;
+import burp.api.montoya.http.message.responses.HttpResponse;
+import com.specops.SpecOpsContext;
+import com.specops.domain.AttackResult;
+import com.specops.domain.SendSettings;
+
+import java.io.IOException;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Sends a bulk plan through Burp's HTTP stack using a fixed number of workers on virtual threads.
+ * Workers pull the next planned request from a PlanSource, so Pause and Stop take effect
+ * between requests and every worker finishes the request it is currently sending.
+ * Results complete out of order and carry the plan sequence as an ordering tag.
+ * Before each send the worker takes a token from the per-host rate limiter, so the configured
+ * requests-per-second hold for every target service, including multi-server fan-out.
+ * With adaptive concurrency on, workers also take an in-flight slot for the target host and return it
+ * with the observed latency and status, letting the limiter back off on 429/503 and ramp up otherwise.
+ * Connection errors and selected statuses are retried with jittered exponential backoff; the reported
+ * result is the final attempt, stamped with the attempt count and total time.
+ */
+public class BulkSender {
+
+    /**
+     * Callbacks are invoked on worker threads. Swing listeners must dispatch UI mutations to the EDT.
+     */
+    public interface Listener {
+        void onResult(AttackResult result);
+
+        void onProgress(int done, int total);
+
+        /** Called when the rate limiter or a Retry-After hold starts or stops delaying requests. */
+        default void onThrottleChanged(boolean throttled) {
+        }
+    }
+
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    private final SpecOpsContext context;
+    private final int workers;
+    private final HostRateLimiter rateLimiter;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final SendSettings.RetryPolicy retryPolicy;
+
+    private final AtomicBoolean pauseRequested = new AtomicBoolean(false);
+    private final AtomicBoolean stopAfterCurrent = new AtomicBoolean(false);
+    private final Object pauseLock = new Object();
+    private final Object backoffLock = new Object();
+    private final AtomicBoolean throttled = new AtomicBoolean(false);
+    private final Object progressLock = new Object();
+    private final AtomicBoolean journalFailed = new AtomicBoolean(false);
+    private volatile PlanSource activeSource;
+
+    /**
+     * Captures the current send settings; later edits apply to the next run.
+     */
+    public BulkSender(SpecOpsContext context) {
+        SendSettings settings = context.getSendSettings();
+        this.context = context;
+        this.workers = Math.max(1, settings.getWorkerCount());
+        this.rateLimiter = HostRateLimiter.fromSettings(settings);
+        this.concurrencyLimiter = settings.isAdaptiveConcurrency()
+                ? new AdaptiveConcurrencyLimiter(Math.max(1, workers / 4), workers)
+                : null;
+        this.retryPolicy = settings.getRetryPolicy();
+    }
+
+    /**
+     * Sends every planned request and blocks until the plan is exhausted or a stop was requested.
+     */
+    public void run(List<PlannedRequest> plan, Listener listener) {
+        run(PlanSource.of(plan), null, listener);
+    }
+
+    /**
+     * Sends requests as the source supplies them, recording each completed sequence in the journal
+     * before its result is reported. A journal write failure is logged and journaling stops;
+     * the run itself continues. The source is cancelled when the run ends.
+     */
+    public void run(PlanSource source, RunJournal journal, Listener listener) {
+        activeSource = source;
+        int[] completed = {0};
+
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int w = 0; w < workers; w++) {
+                pool.submit(() -> {
+                    while (true) {
+                        waitIfPaused();
+                        if (stopAfterCurrent.get()) return;
+
+                        PlannedRequest item;
+                        try {
+                            item = source.next();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                        if (item == null || stopAfterCurrent.get()) return;
+
+                        try {
+                            AttackResult result = sendWithRetries(item, listener);
+                            if (result == null) return;
+                            recordDone(journal, result.getSequence());
+                            listener.onResult(result);
+
+                            // Serialize progress so listeners always observe a monotonic count
+                            synchronized (progressLock) {
+                                completed[0]++;
+                                listener.onProgress(completed[0], Math.max(completed[0], source.total()));
+                            }
+                        } catch (RuntimeException e) {
+                            // Nobody reads the worker futures; log and keep the worker alive
+                            context.api.logging().logToError("Bulk send failed for request #" + item.sequence()
+                                    + " (" + item.endpoint().getMethod() + " " + item.endpoint().getPath() + "): " + e);
+                        }
+                    }
+                });
+            }
+        } finally {
+            source.cancel();
+            activeSource = null;
+        }
+    }
+
+    private void recordDone(RunJournal journal, int sequence) {
+        if (journal == null || journalFailed.get()) return;
+        try {
+            journal.recordDone(sequence);
+        } catch (IOException e) {
+            if (!journalFailed.getAndSet(true)) {
+                context.api.logging().logToError("Run journal write failed, resume disabled for this run: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Sends one planned request, retrying per the retry policy. Every attempt takes its own
+     * rate-limit token and concurrency slot; backoff waits hold neither.
+     *
+     * @return the final attempt, or null when stopped or interrupted before the first send
+     */
+    private AttackResult sendWithRetries(PlannedRequest item, Listener listener) {
+        HttpService service = item.request().httpService();
+        long started = System.nanoTime();
+        AttackResult last = null;
+
+        for (int attempt = 1; ; attempt++) {
+            AttackResult result = attemptOnce(item, service, listener);
+            if (result == null) break;
+            last = result.withAttempts(attempt, elapsedMillis(started));
+
+            long retryAfter = RetryAfter.millis(result.getResponse());
+            if (attempt >= retryPolicy.maxAttempts()
+                    || !retryPolicy.isRetryable(result.getStatusCode(), retryAfter)
+                    || stopAfterCurrent.get()) {
+                break;
+            }
+            long delay = retryPolicy.delayMillis(attempt, retryAfter);
+            if (delay < 0 || !backoff(delay)) break;
+            waitIfPaused();
+            if (stopAfterCurrent.get()) break;
+        }
+        return last;
+    }
+
+    /**
+     * Waits between attempts; Stop cuts the wait short.
+     *
+     * @return false when stopped or interrupted during the wait
+     */
+    private boolean backoff(long delayMillis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+        synchronized (backoffLock) {
+            while (!stopAfterCurrent.get()) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) return true;
+                try {
+                    backoffLock.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    private AttackResult attemptOnce(PlannedRequest item, HttpService service, Listener listener) {
+        if (!acquireSlot(service)) return null;
+        AttackResult result = null;
+        try {
+            if (!awaitRateLimit(service, listener)) return null;
+            if (stopAfterCurrent.get()) return null;
+            result = send(item);
+        } finally {
+            releaseSlot(service, result);
+        }
+        return result;
+    }
+
+    /**
+     * @return false when the wait was interrupted or the run stopped, and the worker should exit
+     */
+    private boolean acquireSlot(HttpService service) {
+        if (concurrencyLimiter == null) return true;
+        try {
+            return concurrencyLimiter.acquire(service);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void releaseSlot(HttpService service, AttackResult result) {
+        if (concurrencyLimiter == null) return;
+        if (result == null) {
+            // Not sent: hand the slot back without feeding a sample
+            concurrencyLimiter.release(service, 0, -1, 0);
+            return;
+        }
+        concurrencyLimiter.release(service, result.getResponseTimeMillis(), result.getStatusCode(),
+                RetryAfter.millis(result.getResponse()));
+    }
+
+    /**
+     * @return false when the wait was interrupted and the worker should exit
+     */
+    private boolean awaitRateLimit(HttpService service, Listener listener) {
+        try {
+            rateLimiter.acquire(service);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        boolean nowThrottled = rateLimiter.isThrottling()
+                || (concurrencyLimiter != null && concurrencyLimiter.isBackingOff());
+        if (throttled.getAndSet(nowThrottled) != nowThrottled) {
+            listener.onThrottleChanged(nowThrottled);
+        }
+        return true;
+    }
+
+    private AttackResult send(PlannedRequest item) {
+        HttpRequest request = item.request();
+        long started = System.nanoTime();
+        try {
+            HttpRequestResponse requestResponse = context.api.http().sendRequest(request);
+            HttpResponse response = requestResponse.response();
+            return new AttackResult(item.endpoint(), requestResponse.request(), response, now(), item.sequence(),
+                    elapsedMillis(started));
+        } catch (Throwable t) {
+            return new AttackResult(item.endpoint(), request, null, now(), item.sequence(), elapsedMillis(started));
+        }
+    }
+
+    private static long elapsedMillis(long startedNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedNanos);
+    }
+
+    private static String now() {
+        return LocalTime.now().format(TIMESTAMP);
+    }
+
+    private void waitIfPaused() {
+        synchronized (pauseLock) {
+            while (pauseRequested.get() && !stopAfterCurrent.get()) {
+                try {
+                    pauseLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+    }
+
+    public void pause() {
+        pauseRequested.set(true);
+    }
+
+    public void resume() {
+        pauseRequested.set(false);
+        synchronized (pauseLock) {
+            pauseLock.notifyAll();
+        }
+    }
+
+    public boolean isPaused() {
+        return pauseRequested.get();
+    }
+
+    /**
+     * Lets in-flight requests finish and stops workers from taking new ones.
+     */
+    public void stopAfterCurrent() {
+        stopAfterCurrent.set(true);
+        if (concurrencyLimiter != null) {
+            // Release workers parked on a full host or a Retry-After hold
+            concurrencyLimiter.cancel();
+        }
+        PlanSource source = activeSource;
+        if (source != null) {
+            // Wake workers waiting for the next request to be built
+            source.cancel();
+        }
+        pauseRequested.set(false);
+        synchronized (pauseLock) {
+            pauseLock.notifyAll();
+        }
+        synchronized (backoffLock) {
+            backoffLock.notifyAll();
+        }
+    }
+
+    public boolean isStopRequested() {
+        return stopAfterCurrent.get();
+    }
+}
@@ -0,0 +1,114 @@
+package com.specops.services.sender;
+
+import burp.api.montoya.http.HttpService;
+import com.specops.domain.SendSettings;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token-bucket rate limiter keyed by target service (host:port:scheme).
+ * Each bucket refills at its requests-per-second rate and holds at most its burst size.
+ * Callers reserve a token up front and sleep for the reservation, so concurrent workers
+ * aimed at the same host queue up fairly instead of bursting.
+ */
+public class HostRateLimiter {
+
+    private static final long THROTTLE_DISPLAY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final SendSettings.HostLimit defaultLimit;
+    private final Map<String, SendSettings.HostLimit> overrides;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    private volatile long lastThrottledAtNanos;
+
+    /**
+     * @param defaultLimit limit applied to hosts without an override, or null for unlimited
+     * @param overrides    per-host limits keyed by "host:port:scheme" or by bare host
+     */
+    public HostRateLimiter(SendSettings.HostLimit defaultLimit, Map<String, SendSettings.HostLimit> overrides) {
+        this.defaultLimit = defaultLimit;
+        this.overrides = overrides == null ? Map.of() : Map.copyOf(overrides);
+        this.lastThrottledAtNanos = System.nanoTime() - THROTTLE_DISPLAY_NANOS;
+    }
+
+    public static HostRateLimiter fromSettings(SendSettings settings) {
+        return new HostRateLimiter(settings.getDefaultHostLimit(), settings.getHostLimitOverrides());
+    }
+
+    /** Stable key for a service, e.g. "api.example.com:443:https". */
+    public static String hostKey(HttpService service) {
+        return service.host().toLowerCase(Locale.ROOT) + ":" + service.port() + ":" + (service.secure() ? "https" : "http");
+    }
+
+    /**
+     * Blocks until a token is available for the given service.
+     *
+     * @return milliseconds spent waiting
+     */
+    public long acquire(HttpService service) throws InterruptedException {
+        if (service == null) return 0;
+
+        String key = hostKey(service);
+        Bucket bucket = buckets.computeIfAbsent(key, k -> {
+            SendSettings.HostLimit limit = limitFor(service, k);
+            return limit == null ? null : new Bucket(limit);
+        });
+        if (bucket == null) return 0;
+
+        long waitNanos = bucket.reserve();
+        if (waitNanos <= 0) return 0;
+
+        // Stamp the end of the wait so long sleeps still read as throttled afterwards
+        lastThrottledAtNanos = System.nanoTime() + waitNanos;
+        TimeUnit.NANOSECONDS.sleep(waitNanos);
+        return TimeUnit.NANOSECONDS.toMillis(waitNanos);
+    }
+
+    /** True when any caller had to wait for a token within the last second. */
+    public boolean isThrottling() {
+        return System.nanoTime() - lastThrottledAtNanos < THROTTLE_DISPLAY_NANOS;
+    }
+
+    private SendSettings.HostLimit limitFor(HttpService service, String key) {
+        SendSettings.HostLimit exact = overrides.get(key);
+        if (exact != null) return exact.isUnlimited() ? null : exact;
+
+        SendSettings.HostLimit byHost = overrides.get(service.host().toLowerCase(Locale.ROOT));
+        if (byHost != null) return byHost.isUnlimited() ? null : byHost;
+
+        return defaultLimit == null || defaultLimit.isUnlimited() ? null : defaultLimit;
+    }
+
+    private static final class Bucket {
+        private final double tokensPerNano;
+        private final double capacity;
+        private double tokens;
+        private long lastRefillNanos;
+
+        Bucket(SendSettings.HostLimit limit) {
+            this.tokensPerNano = limit.perSecond() / TimeUnit.SECONDS.toNanos(1);
+            this.capacity = Math.max(1, limit.burst());
+            this.tokens = capacity;
+            this.lastRefillNanos = System.nanoTime();
+        }
+
+        /**
+         * Takes one token, allowing the balance to go negative.
+         * A negative balance is the queue of reservations ahead of this caller.
+         *
+         * @return nanoseconds the caller must wait before sending
+         */
+        synchronized long reserve() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * tokensPerNano);
+            lastRefillNanos = now;
+
+            tokens -= 1;
+            if (tokens >= 0) return 0;
+            return (long) Math.ceil(-tokens / tokensPerNano);
+        }
+    }
+}
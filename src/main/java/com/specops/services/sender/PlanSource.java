@@ -0,0 +1,47 @@
+package com.specops.services.sender;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Supplies planned requests to the sender's workers.
+ * Implementations must be safe for concurrent calls to {@link #next()}.
+ */
+public interface PlanSource {
+
+    /**
+     * @return the next request, blocking while it is being built, or null when the plan is exhausted
+     */
+    PlannedRequest next() throws InterruptedException;
+
+    /** Exact number of requests once {@link #isTotalKnown()}, otherwise a running estimate. */
+    int total();
+
+    boolean isTotalKnown();
+
+    /** Stops producing further requests and releases callers blocked in {@link #next()}. */
+    default void cancel() {
+    }
+
+    /** A plan that is already fully built. */
+    static PlanSource of(List<PlannedRequest> plan) {
+        AtomicInteger cursor = new AtomicInteger(0);
+        return new PlanSource() {
+            @Override
+            public PlannedRequest next() {
+                int idx = cursor.getAndIncrement();
+                return idx < plan.size() ? plan.get(idx) : null;
+            }
+
+            @Override
+            public int total() {
+                return plan.size();
+            }
+
+            @Override
+            public boolean isTotalKnown() {
+                return true;
+            }
+        };
+    }
+}
@@ -0,0 +1,11 @@
+package com.specops.services.sender;
+
+import burp.api.montoya.http.message.requests.HttpRequest;
+import com.specops.domain.Endpoint;
+
+/**
+ * One entry of a bulk send plan.
+ * The sequence is the position in the plan and tags the resulting AttackResult.
+ */
+public record PlannedRequest(int sequence, Endpoint endpoint, HttpRequest request) {
+}
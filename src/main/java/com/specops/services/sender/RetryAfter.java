@@ -0,0 +1,41 @@
+package com.specops.services.sender;
+
+import burp.api.montoya.http.message.responses.HttpResponse;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Parses the Retry-After response header (RFC 9110), which is either delay-seconds or an HTTP-date.
+ */
+final class RetryAfter {
+
+    private RetryAfter() {
+    }
+
+    /**
+     * @return the requested delay in milliseconds, or -1 when the header is absent or unparsable
+     */
+    static long millis(HttpResponse response) {
+        if (response == null) return -1;
+        String value = response.headerValue("Retry-After");
+        if (value == null || value.isBlank()) return -1;
+
+        String v = value.trim();
+        if (v.chars().allMatch(Character::isDigit)) {
+            // Too large to represent as milliseconds: wait "forever", which callers cap or refuse
+            try {
+                return Math.multiplyExact(Long.parseLong(v), 1000L);
+            } catch (NumberFormatException | ArithmeticException overflow) {
+                return Long.MAX_VALUE;
+            }
+        }
+        try {
+            ZonedDateTime at = ZonedDateTime.parse(v, DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.max(0, at.toInstant().toEpochMilli() - System.currentTimeMillis());
+        } catch (DateTimeParseException ignored) {
+            return -1;
+        }
+    }
+}
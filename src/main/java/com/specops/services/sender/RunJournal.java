@@ -0,0 +1,258 @@
+package com.specops.services.sender;
+
+import burp.api.montoya.core.ByteArray;
+import burp.api.montoya.http.HttpService;
+import burp.api.montoya.http.message.requests.HttpRequest;
+import com.specops.domain.Endpoint;
+import io.swagger.v3.oas.models.Operation;
+import io.swagger.v3.oas.models.PathItem;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Append-only journal of a bulk run, so an interrupted run can resume where it stopped.
+ * One record per line:
+ * - {@code P seq method path host port secure request} a planned request (path and request are Base64)
+ * - {@code S total} the plan is complete
+ * - {@code D seq} the request was sent and its result reported
+ * Lines are flushed as they are written. An unterminated last line from a crash is ignored on load.
+ * The completion watermark is the length of the contiguous prefix of done sequences;
+ * done records beyond it are kept individually because workers finish out of order.
+ * Records carry full requests including credentials, so the journal and its directory are owner-only
+ * where the file system supports POSIX permissions, and each project and spec gets its own journal.
+ */
+public class RunJournal implements Closeable {
+
+    private static final String HEADER = "SPECOPS-RUN 1";
+    private static final Base64.Encoder B64 = Base64.getEncoder();
+    private static final Base64.Decoder B64D = Base64.getDecoder();
+
+    private final Path path;
+    private final BufferedWriter writer;
+
+    private RunJournal(Path path, BufferedWriter writer) {
+        this.path = path;
+        this.writer = writer;
+    }
+
+    /**
+     * ~/.specops/bulk-run-&lt;hash&gt;.journal, one per scope.
+     *
+     * @param scope identifies what the run belongs to, e.g. the Burp project and the loaded spec
+     */
+    public static Path pathFor(String scope) {
+        String hash;
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(scope.getBytes(StandardCharsets.UTF_8));
+            hash = HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            hash = Integer.toHexString(scope.hashCode());
+        }
+        return Path.of(System.getProperty("user.home"), ".specops", "bulk-run-" + hash + ".journal");
+    }
+
+    /** Starts a new journal, replacing any previous one. */
+    public static RunJournal create(Path path) throws IOException {
+        restrictToOwner(path);
+        BufferedWriter w = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        w.write(HEADER);
+        w.newLine();
+        w.flush();
+        return new RunJournal(path, w);
+    }
+
+    /** Reopens an existing journal to append further records after a resume. */
+    public static RunJournal append(Path path) throws IOException {
+        restrictToOwner(path);
+        // Drop an unterminated last record so new records start on a clean line
+        byte[] bytes = Files.readAllBytes(path);
+        int end = bytes.length;
+        while (end > 0 && bytes[end - 1] != '\n') end--;
+        if (end < bytes.length) {
+            try (FileChannel ch = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                ch.truncate(end);
+            }
+        }
+        BufferedWriter w = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                StandardOpenOption.APPEND, StandardOpenOption.WRITE);
+        return new RunJournal(path, w);
+    }
+
+    public synchronized void recordPlanned(PlannedRequest item) throws IOException {
+        HttpRequest request = item.request();
+        HttpService service = request.httpService();
+        Endpoint ep = item.endpoint();
+        writer.write("P " + item.sequence()
+                + " " + ep.getMethod()
+                + " " + B64.encodeToString(ep.getPath().getBytes(StandardCharsets.UTF_8))
+                + " " + service.host()
+                + " " + service.port()
+                + " " + service.secure()
+                + " " + B64.encodeToString(request.toByteArray().getBytes()));
+        writer.newLine();
+        writer.flush();
+    }
+
+    public synchronized void seal(int total) throws IOException {
+        writer.write("S " + total);
+        writer.newLine();
+        writer.flush();
+    }
+
+    public synchronized void recordDone(int sequence) throws IOException {
+        writer.write("D " + sequence);
+        writer.newLine();
+        writer.flush();
+    }
+
+    /** Creates the directory and file if needed and makes both owner-only before anything is written. */
+    private static void restrictToOwner(Path path) throws IOException {
+        Path dir = path.getParent();
+        boolean posix = dir.getFileSystem().supportedFileAttributeViews().contains("posix");
+        if (!posix) {
+            Files.createDirectories(dir);
+            return;
+        }
+        Set<PosixFilePermission> dirPerms = PosixFilePermissions.fromString("rwx------");
+        Set<PosixFilePermission> filePerms = PosixFilePermissions.fromString("rw-------");
+        if (Files.isDirectory(dir)) {
+            Files.setPosixFilePermissions(dir, dirPerms);
+        } else {
+            Files.createDirectories(dir, PosixFilePermissions.asFileAttribute(dirPerms));
+        }
+        if (Files.exists(path)) {
+            Files.setPosixFilePermissions(path, filePerms);
+        } else {
+            Files.createFile(path, PosixFilePermissions.asFileAttribute(filePerms));
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+
+    public static boolean exists(Path path) {
+        return Files.isRegularFile(path);
+    }
+
+    /** Closes and removes the journal once the run has finished. */
+    public void delete() throws IOException {
+        close();
+        Files.deleteIfExists(path);
+    }
+
+    /**
+     * Reads a journal left by an earlier run.
+     *
+     * @param endpoints endpoints of the loaded spec, used to reattach planned requests to their endpoint;
+     *                  requests for endpoints no longer loaded get a placeholder carrying method and path
+     * @return the recovered state, or null when there is no journal or it has nothing left to send
+     */
+    public static Recovered load(Path path, List<Endpoint> endpoints) throws IOException {
+        if (!Files.isRegularFile(path)) return null;
+
+        String content = Files.readString(path, StandardCharsets.UTF_8);
+        List<String> lines = content.lines().toList();
+        if (!content.endsWith("\n") && !lines.isEmpty()) {
+            // The last record was cut off mid-write; "D 12" truncated to "D 1" must not count
+            lines = lines.subList(0, lines.size() - 1);
+        }
+        if (lines.isEmpty() || !HEADER.equals(lines.get(0))) return null;
+
+        Map<String, Endpoint> byKey = new HashMap<>();
+        if (endpoints != null) {
+            for (Endpoint ep : endpoints) {
+                byKey.putIfAbsent(ep.getMethod() + " " + ep.getPath(), ep);
+            }
+        }
+
+        List<PlannedRequest> planned = new ArrayList<>();
+        Set<PlannedRequest> unmatched = Collections.newSetFromMap(new IdentityHashMap<>());
+        BitSet done = new BitSet();
+        int sealedTotal = -1;
+
+        for (int i = 1; i < lines.size(); i++) {
+            String[] f = lines.get(i).split(" ");
+            try {
+                switch (f[0]) {
+                    case "P" -> {
+                        if (f.length != 8) continue;
+                        String method = f[2];
+                        String epPath = new String(B64D.decode(f[3]), StandardCharsets.UTF_8);
+                        HttpService service = HttpService.httpService(f[4], Integer.parseInt(f[5]), Boolean.parseBoolean(f[6]));
+                        HttpRequest request = HttpRequest.httpRequest(service, ByteArray.byteArray(B64D.decode(f[7])));
+                        Endpoint ep = byKey.get(method + " " + epPath);
+                        boolean known = ep != null;
+                        if (!known) {
+                            ep = new Endpoint(epPath, PathItem.HttpMethod.valueOf(method), new Operation());
+                            byKey.put(method + " " + epPath, ep);
+                        }
+                        PlannedRequest item = new PlannedRequest(Integer.parseInt(f[1]), ep, request);
+                        planned.add(item);
+                        if (!known) unmatched.add(item);
+                    }
+                    case "S" -> sealedTotal = Integer.parseInt(f[1]);
+                    case "D" -> done.set(Integer.parseInt(f[1]));
+                    default -> {
+                    }
+                }
+            } catch (RuntimeException ignored) {
+                // Corrupt record; skip it and keep what can be recovered
+            }
+        }
+
+        List<PlannedRequest> remaining = new ArrayList<>();
+        Set<String> hosts = new TreeSet<>();
+        int remainingUnmatched = 0;
+        for (PlannedRequest p : planned) {
+            if (done.get(p.sequence())) continue;
+            remaining.add(p);
+            HttpService service = p.request().httpService();
+            hosts.add((service.secure() ? "https://" : "http://") + service.host() + ":" + service.port());
+            if (unmatched.contains(p)) remainingUnmatched++;
+        }
+        if (remaining.isEmpty()) return null;
+
+        return new Recovered(remaining, planned.size(), done.nextClearBit(0), sealedTotal >= 0,
+                hosts, remainingUnmatched);
+    }
+
+    /**
+     * @param remaining planned requests not yet completed, in plan order
+     * @param planned   number of planned requests found in the journal
+     * @param watermark every sequence below this index is complete
+     * @param sealed    false when the run was interrupted while its plan was still being written
+     * @param hosts     services the remaining requests go to, as scheme://host:port
+     * @param unmatched remaining requests whose endpoint is not in the loaded spec
+     */
+    public record Recovered(List<PlannedRequest> remaining, int planned, int watermark, boolean sealed,
+                            Set<String> hosts, int unmatched) {
+        public int completed() {
+            return planned - remaining.size();
+        }
+    }
+}
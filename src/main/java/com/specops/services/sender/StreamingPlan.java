@@ -0,0 +1,165 @@
+package com.specops.services.sender;
+
+import burp.api.montoya.http.message.requests.HttpRequest;
+import com.specops.domain.Endpoint;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Builds a bulk plan lazily on a background thread and hands requests to the sender through a bounded queue.
+ * The first request goes out as soon as it is built, and memory holds at most the queue capacity
+ * rather than the whole selection. Each request is journaled before it is queued, so a "done" record
+ * never precedes its "planned" record; the journal is sealed once every endpoint has been expanded.
+ */
+public class StreamingPlan implements PlanSource {
+
+    // Marks the end of the plan; consumers put it back so every worker sees it
+    private static final PlannedRequest END = new PlannedRequest(-1, null, null);
+    private static final long OFFER_POLL_MS = 100;
+
+    private final List<Endpoint> endpoints;
+    private final Function<Endpoint, List<HttpRequest>> expander;
+    private final BlockingQueue<PlannedRequest> queue;
+    private final RunJournal journal;
+    private final Consumer<String> errorLog;
+
+    private volatile boolean cancelled;
+    private volatile boolean totalKnown;
+    private volatile boolean journalFailed;
+    private volatile int produced;
+    private volatile int endpointsExpanded;
+
+    /**
+     * @param expander builds the requests for one endpoint; runs on the producer thread
+     * @param capacity maximum number of built requests waiting to be sent
+     * @param journal  journal to record planned requests in, or null
+     * @param errorLog receives messages about endpoints that failed to build
+     */
+    public StreamingPlan(List<Endpoint> endpoints, Function<Endpoint, List<HttpRequest>> expander,
+                         int capacity, RunJournal journal, Consumer<String> errorLog) {
+        this.endpoints = List.copyOf(endpoints);
+        this.expander = expander;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.journal = journal;
+        this.errorLog = errorLog;
+    }
+
+    public void start() {
+        Thread.ofPlatform().daemon().name("SpecOps-plan-builder").start(this::produce);
+    }
+
+    private void produce() {
+        try {
+            for (Endpoint ep : endpoints) {
+                if (cancelled) return;
+
+                List<HttpRequest> requests;
+                try {
+                    requests = expander.apply(ep);
+                } catch (RuntimeException e) {
+                    errorLog.accept("Could not build request for " + ep.getMethod() + " " + ep.getPath() + ": " + e.getMessage());
+                    requests = List.of();
+                }
+
+                if (requests != null) {
+                    for (HttpRequest request : requests) {
+                        if (request == null) continue;
+                        PlannedRequest item = new PlannedRequest(produced, ep, request);
+                        journalPlanned(item);
+                        if (!enqueue(item)) return;
+                        produced++;
+                    }
+                }
+                endpointsExpanded++;
+            }
+            totalKnown = true;
+            sealJournal();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // Space is guaranteed after cancel clears the queue; otherwise wait for consumers
+            try {
+                while (!queue.offer(END, OFFER_POLL_MS, TimeUnit.MILLISECONDS)) {
+                    if (cancelled) queue.clear();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * @return false when the plan was cancelled while waiting for queue space
+     */
+    private boolean enqueue(PlannedRequest item) throws InterruptedException {
+        while (!queue.offer(item, OFFER_POLL_MS, TimeUnit.MILLISECONDS)) {
+            if (cancelled) return false;
+        }
+        return true;
+    }
+
+    private void journalPlanned(PlannedRequest item) {
+        if (journal == null || journalFailed) return;
+        try {
+            journal.recordPlanned(item);
+        } catch (IOException e) {
+            journalFailed = true;
+            errorLog.accept("Run journal write failed, this run cannot be resumed: " + e.getMessage());
+        }
+    }
+
+    private void sealJournal() {
+        if (journal == null || journalFailed) return;
+        try {
+            journal.seal(produced);
+        } catch (IOException e) {
+            journalFailed = true;
+            errorLog.accept("Run journal write failed, this run cannot be resumed: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public PlannedRequest next() throws InterruptedException {
+        PlannedRequest item = queue.take();
+        if (item == END) {
+            queue.offer(END);
+            return null;
+        }
+        return item;
+    }
+
+    @Override
+    public int total() {
+        int done = produced;
+        if (totalKnown) return done;
+
+        // Extrapolate from the average fan-out of the endpoints expanded so far
+        int expanded = endpointsExpanded;
+        int pending = endpoints.size() - expanded;
+        if (expanded == 0) return Math.max(done, endpoints.size());
+        return done + (int) ((long) pending * done / expanded);
+    }
+
+    @Override
+    public boolean isTotalKnown() {
+        return totalKnown;
+    }
+
+    /** Number of requests built so far. */
+    public int produced() {
+        return produced;
+    }
+
+    @Override
+    public void cancel() {
+        cancelled = true;
+        queue.clear();
+        queue.offer(END);
+    }
+}
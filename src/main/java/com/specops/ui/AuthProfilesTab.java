@@ -1,5 +1,6 @@
 package com.specops.ui;
 
+import com.specops.ChangeBus;
 import com.specops.SpecOpsContext;
 import io.swagger.v3.oas.models.OpenAPI;
 import io.swagger.v3.oas.models.security.SecurityRequirement;
@@ -62,15 +63,15 @@ public class AuthProfilesTab extends JPanel {
             table.editCellAt(-1, -1); // ensure any active editor stops
             tableModel.commitToContext(context);
             JOptionPane.showMessageDialog(this, "Auth profiles saved.", "Saved", JOptionPane.INFORMATION_MESSAGE);
-            // Notify preview consumers to rebuild requests with new auth
-            context.notifyServersChanged();
         });
 
         // Initial load
         reloadFromSpec();
 
-        // When spec or server settings change, refresh our view
-        context.setServersUpdateListener(v -> SwingUtilities.invokeLater(this::reloadFromSpec));
+        // Schemes only change with the spec; reloading on server changes would drop unapplied edits
+        context.getChangeBus().subscribe(changes -> {
+            if (changes.has(ChangeBus.Topic.SPEC)) reloadFromSpec();
+        });
     }
 
     private void reloadFromSpec() {
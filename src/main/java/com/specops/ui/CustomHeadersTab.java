@@ -12,6 +12,8 @@ public class CustomHeadersTab extends JPanel {
         super(new BorderLayout());
 
         HeaderRuleTableModel model = new HeaderRuleTableModel(context.getHeaderRules());
+        // Every edit, add, remove and move fires a table event
+        model.addTableModelListener(e -> context.notifyHeaderRulesChanged());
         JTable table = new JTable(model);
 
         // Scope editor: enum combo
@@ -1,13 +1,20 @@
 package com.specops.ui;
 
 import burp.api.montoya.http.message.requests.HttpRequest;
-import burp.api.montoya.http.message.responses.HttpResponse;
 import burp.api.montoya.ui.editor.EditorOptions;
 import burp.api.montoya.ui.editor.HttpRequestEditor;
+import com.specops.ChangeBus;
 import com.specops.SpecOpsContext;
 import com.specops.domain.AttackResult;
 import com.specops.domain.Endpoint;
+import com.specops.domain.ParameterSnapshot;
+import com.specops.domain.SendSettings;
 import com.specops.services.request.RequestFactory;
+import com.specops.services.sender.BulkSender;
+import com.specops.services.sender.PlanSource;
+import com.specops.services.sender.PlannedRequest;
+import com.specops.services.sender.RunJournal;
+import com.specops.services.sender.StreamingPlan;
 import com.specops.ui.models.EndpointTableModel;
 
 import javax.swing.*;
@@ -18,24 +25,27 @@ import javax.swing.table.TableRowSorter;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.text.SimpleDateFormat;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Date;
-import java.util.LinkedHashMap;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 /**
  * Endpoints workbench with cancellable bulk pings, progress, and ETA.
- * - Uses a precomputed plan that expands each selected endpoint into 1..N HttpRequests.
+ * - A background producer expands each selected endpoint into 1..N HttpRequests and streams them
+ *   to the sender through a bounded queue, so sending starts immediately and memory stays flat.
  * - If "iterate across all servers" is enabled, the plan contains one request per server.
- * - Progress bar and ETA reflect the true total number of requests.
+ * - Progress bar and ETA use an estimated total (shown with ~) until the plan is fully built.
+ * - Sending is delegated to BulkSender, which runs the plan on a configurable number of workers.
+ * - Each run is journaled to disk so a stopped or interrupted run can be resumed without resending.
  */
 public class EndpointsTab extends JPanel {
+    private static final int PLAN_QUEUE_MIN_CAPACITY = 64;
+
     private final SpecOpsContext context;
     private final EndpointTableModel tableModel;
     private final JTable endpointsTable;
@@ -48,16 +58,15 @@ public class EndpointsTab extends JPanel {
     private final JButton btnPing;
     private final JButton btnCancel;
     private final JButton btnPause;
+    private final JButton btnSettings;
+    private final JButton btnResume;
     private final JProgressBar progressBar;
     private final JLabel etaLabel;
     private final JLabel countLabel;
     private final JLabel statusLabel;
 
     private SwingWorker<Void, AttackResult> activeWorker;
-
-    private final AtomicBoolean pauseRequested = new AtomicBoolean(false);
-    private final AtomicBoolean stopAfterCurrent = new AtomicBoolean(false);
-    private final Object pauseLock = new Object();
+    private BulkSender activeSender;
 
     public EndpointsTab(SpecOpsContext context, JTabbedPane mainPane) {
         this.context = context;
@@ -75,6 +84,9 @@ public class EndpointsTab extends JPanel {
         btnCancel.setEnabled(false);
         btnPause = new JButton("Pause");
         btnPause.setEnabled(false);
+        btnSettings = new JButton("Send Settings");
+        btnResume = new JButton("Resume Run");
+        btnResume.setToolTipText("Send the remaining requests of an interrupted or stopped run");
 
         progressBar = new JProgressBar(0, 100);
         progressBar.setStringPainted(true);
@@ -88,6 +100,8 @@ public class EndpointsTab extends JPanel {
         toolbar.add(btnPing);
         toolbar.add(btnCancel);
         toolbar.add(btnPause);
+        toolbar.add(btnResume);
+        toolbar.add(btnSettings);
         toolbar.add(progressBar);
         toolbar.add(countLabel);
         toolbar.add(new JLabel("|"));
@@ -136,27 +150,36 @@ public class EndpointsTab extends JPanel {
         add(mainSplitPane, BorderLayout.CENTER);
 
         // Refresh table when endpoints or parameters change
-        context.setEndpointsUpdateListener(v -> runOnEdt(this::refreshData));
-        context.setParametersUpdateListener(v -> runOnEdt(() -> {
-            tableModel.recalculateBindingStatus();
-            tableModel.fireTableDataChanged();
-            updatePreviewPanels();
-            updateCountLabel();
-        }));
-        context.setBindingsUpdateListener(() -> runOnEdt(() -> {
-            tableModel.recalculateBindingStatus();
-            tableModel.fireTableDataChanged();
-            updateCountLabel();
-        }));
+        context.getChangeBus().subscribe(changes -> {
+            if (changes.has(ChangeBus.Topic.ENDPOINTS)) {
+                refreshData();
+                updateResumeButton();
+            } else if (changes.has(ChangeBus.Topic.PARAMETERS) && !changes.allParameters()) {
+                // Binding stats derive from parameter values, so the changed keys cover BINDINGS too
+                tableModel.recalculateBindingStatus(changes.parameterKeys());
+            } else if (changes.has(ChangeBus.Topic.PARAMETERS) || changes.has(ChangeBus.Topic.BINDINGS)) {
+                tableModel.recalculateBindingStatus();
+                tableModel.fireTableDataChanged();
+                updateCountLabel();
+            }
+            // refreshData() already redrew the preview
+            if ((changes.has(ChangeBus.Topic.PARAMETERS) || changes.has(ChangeBus.Topic.AUTH))
+                    && !changes.has(ChangeBus.Topic.ENDPOINTS)) {
+                updatePreviewPanels();
+            }
+        });
 
         // Wire actions
         btnPing.addActionListener(e -> pingSelectedEndpointsWorker());
         btnCancel.addActionListener(e -> cancelActiveJob());
         btnPause.addActionListener(e -> togglePause());
+        btnSettings.addActionListener(e -> showSendSettings());
+        btnResume.addActionListener(e -> resumeInterruptedRun());
         setupFilterListener();
 
         // Init counts
         updateCountLabel();
+        updateResumeButton();
     }
 
     public void refreshData() {
@@ -307,88 +330,143 @@ public class EndpointsTab extends JPanel {
             return;
         }
 
-        final Map<Endpoint, List<HttpRequest>> plan = new LinkedHashMap<>();
-        int tmpCount = 0;
-
-        if (context.isIterateAcrossAllServers()) {
-            for (Endpoint ep : endpointsToPing) {
-                List<HttpRequest> reqs = requestFactory.buildRequestsForBulkSend(ep);
-                plan.put(ep, reqs);
-                tmpCount += reqs.size();
-            }
-        } else {
-            for (Endpoint ep : endpointsToPing) {
-                HttpRequest req = requestFactory.buildRequest(ep);
-                List<HttpRequest> list = (req == null) ? List.of() : List.of(req);
-                plan.put(ep, list);
-                tmpCount += list.size();
-            }
+        if (RunJournal.exists(journalPath())) {
+            int choice = JOptionPane.showConfirmDialog(this,
+                    "An interrupted run can still be resumed. Starting a new run discards it.\nContinue?",
+                    "Discard interrupted run?", JOptionPane.OK_CANCEL_OPTION, JOptionPane.WARNING_MESSAGE);
+            if (choice != JOptionPane.OK_OPTION) return;
         }
 
-        final int totalCount = tmpCount;
+        // Requests are built in the background and streamed to the sender as they become ready.
+        // The whole run builds from the parameter values as they are now, whatever is edited meanwhile.
+        final ParameterSnapshot parameters = context.getParameterSnapshot();
+        final Function<Endpoint, List<HttpRequest>> expander = context.isIterateAcrossAllServers()
+                ? ep -> requestFactory.buildRequestsForBulkSend(ep, parameters)
+                : ep -> {
+                    HttpRequest req = requestFactory.buildRequest(ep, parameters);
+                    return req == null ? List.of() : List.of(req);
+                };
+        final int capacity = Math.max(PLAN_QUEUE_MIN_CAPACITY, context.getSendSettings().getWorkerCount() * 4);
+
+        startRun(endpointsToPing.size(), journal -> {
+            StreamingPlan plan = new StreamingPlan(endpointsToPing, expander, capacity, journal,
+                    msg -> context.api.logging().logToError(msg));
+            plan.start();
+            return plan;
+        }, false);
+    }
 
-        if (totalCount == 0) {
-            JOptionPane.showMessageDialog(this, "Nothing to send. Check bindings or server configuration.", "Nothing to do", JOptionPane.INFORMATION_MESSAGE);
+    /**
+     * Resumes the run recorded in the journal, sending only requests that never completed.
+     */
+    private void resumeInterruptedRun() {
+        if (activeWorker != null && !activeWorker.isDone()) {
             return;
         }
 
+        RunJournal.Recovered recovered;
+        try {
+            recovered = RunJournal.load(journalPath(), context.getEndpoints());
+        } catch (IOException ex) {
+            context.api.logging().logToError("Could not read run journal: " + ex.getMessage());
+            JOptionPane.showMessageDialog(this, "Could not read the run journal: " + ex.getMessage(),
+                    "Resume failed", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        if (recovered == null) {
+            JOptionPane.showMessageDialog(this, "There is no interrupted run to resume.",
+                    "Nothing to do", JOptionPane.INFORMATION_MESSAGE);
+            updateResumeButton();
+            return;
+        }
+
+        String message = "Resume interrupted run?\n"
+                + recovered.completed() + " of " + recovered.planned() + " requests already completed, "
+                + recovered.remaining().size() + " remaining.\n"
+                + "Requests will be sent to:\n  " + String.join("\n  ", recovered.hosts());
+        if (!recovered.sealed()) {
+            message += "\nThe run was interrupted while planning; only requests planned before that point will be sent.";
+        }
+        boolean mismatch = recovered.unmatched() > 0;
+        if (mismatch) {
+            message += "\n\nWARNING: " + recovered.unmatched() + " of the remaining requests are for endpoints"
+                    + " that are not in the loaded spec. They were built by an earlier run and will be"
+                    + " replayed unchanged, including any credentials they carry.";
+        }
+        int choice = JOptionPane.showConfirmDialog(this, message, "Resume Run",
+                JOptionPane.OK_CANCEL_OPTION,
+                mismatch ? JOptionPane.WARNING_MESSAGE : JOptionPane.QUESTION_MESSAGE);
+        if (choice != JOptionPane.OK_OPTION) return;
+
+        List<PlannedRequest> remaining = recovered.remaining();
+        startRun(remaining.size(), journal -> PlanSource.of(remaining), true);
+    }
+
+    /**
+     * Sends a plan in the background. A fresh run starts a new journal that the plan records into;
+     * a resumed run appends to the existing one. The journal is deleted once the plan finishes
+     * and kept when the run is stopped, so it can be resumed later.
+     *
+     * @param initialTotal total shown before the plan reports its own count
+     * @param planFactory  creates the plan source on the background thread, given the run journal or null
+     */
+    private void startRun(int initialTotal, Function<RunJournal, PlanSource> planFactory, boolean resumed) {
         final long startNano = System.nanoTime();
+        final BulkSender sender = new BulkSender(context);
+        activeSender = sender;
 
         // UI state
         btnPing.setEnabled(false);
+        btnResume.setEnabled(false);
         btnCancel.setEnabled(true);
         btnPause.setEnabled(true);
         btnPause.setText("Pause");
-        pauseRequested.set(false);
-        stopAfterCurrent.set(false);
         progressBar.setValue(0);
         progressBar.setString("0%");
-        countLabel.setText("0 / " + totalCount);
+        countLabel.setText("0 / " + (resumed ? "" : "~") + initialTotal);
         etaLabel.setText("ETA: --:--");
         statusLabel.setText("Status: Running");
 
         activeWorker = new SwingWorker<>() {
+            private RunJournal journal;
+            private PlanSource plan;
+
             @Override
             protected Void doInBackground() {
-                int done = 0;
-                AtomicInteger completedCount = new AtomicInteger(0);
-
-                for (Map.Entry<Endpoint, List<HttpRequest>> entry : plan.entrySet()) {
-                    if (stopAfterCurrent.get()) break;
+                journal = openJournal(resumed);
+                plan = planFactory.apply(journal);
+                boolean finished = false;
+                try {
+                    runSender();
+                    finished = !sender.isStopRequested();
+                } finally {
+                    closeJournal(journal, finished);
+                }
+                return null;
+            }
 
-                    Endpoint endpoint = entry.getKey();
-                    List<HttpRequest> requests = entry.getValue();
-                    if (requests == null || requests.isEmpty()) {
-                        continue;
+            private void runSender() {
+                sender.run(plan, journal, new BulkSender.Listener() {
+                    @Override
+                    public void onResult(AttackResult result) {
+                        publish(result);
                     }
 
-                    for (HttpRequest request : requests) {
-                        waitIfPaused();
-                        if (stopAfterCurrent.get()) break;
-
-                        try {
-                            var requestResponse = context.api.http().sendRequest(request);
-                            String timestamp = new SimpleDateFormat("HH:mm:ss").format(new Date());
-                            HttpResponse response = requestResponse.response();
-                            HttpRequest finalRequest = requestResponse.request();
-
-                            publish(new AttackResult(endpoint, finalRequest, response, timestamp));
-                        } catch (Throwable t) {
-                            String timestamp = new SimpleDateFormat("HH:mm:ss").format(new Date());
-                            publish(new AttackResult(endpoint, request, null, timestamp));
-                        }
-
-                        done++;
-                        completedCount.set(done);
-                        int pct = (int) Math.round((done * 100.0) / totalCount);
+                    @Override
+                    public void onProgress(int done, int total) {
+                        int pct = (int) Math.round((done * 100.0) / total);
                         setProgress(pct);
-                        updateCountAndEtaOnEDT(done, totalCount, startNano);
+                        updateCountAndEtaOnEDT(done, total, plan.isTotalKnown(), startNano);
                     }
-                }
-                if (stopAfterCurrent.get() && completedCount.get() < totalCount) {
-                    runOnEdt(() -> statusLabel.setText("Status: Stopping"));
-                }
-                return null;
+
+                    @Override
+                    public void onThrottleChanged(boolean throttled) {
+                        runOnEdt(() -> {
+                            if (sender.isPaused() || sender.isStopRequested()) return;
+                            statusLabel.setText(throttled ? "Status: Running (throttled)" : "Status: Running");
+                        });
+                    }
+                });
             }
 
             @Override
@@ -404,17 +482,22 @@ public class EndpointsTab extends JPanel {
                 btnCancel.setEnabled(false);
                 btnPause.setEnabled(false);
                 btnPause.setText("Pause");
-                pauseRequested.set(false);
                 statusLabel.setText("Status: Idle");
+                updateResumeButton();
 
                 if (mainPane != null) {
                     // Adjust index if your tab order changes
                     mainPane.setSelectedIndex(6);
                 }
 
-                if (stopAfterCurrent.get()) {
+                if (plan != null && plan.isTotalKnown() && plan.total() == 0) {
+                    JOptionPane.showMessageDialog(EndpointsTab.this,
+                            "Nothing to send. Check bindings or server configuration.",
+                            "Nothing to do", JOptionPane.INFORMATION_MESSAGE);
+                } else if (sender.isStopRequested()) {
                     JOptionPane.showMessageDialog(EndpointsTab.this,
-                            "Ping stopped after current request. See Attack Results for partial results.",
+                            "Ping stopped after current request. See Attack Results for partial results.\n"
+                                    + "Use Resume Run to send the remaining requests.",
                             "Stopped", JOptionPane.WARNING_MESSAGE);
                 } else {
                     JOptionPane.showMessageDialog(EndpointsTab.this,
@@ -436,9 +519,134 @@ public class EndpointsTab extends JPanel {
         activeWorker.execute();
     }
 
-    private void updateCountAndEtaOnEDT(int done, int total, long startNano) {
+    /**
+     * @return the journal for this run, or null when it cannot be opened; the run then proceeds without resume support
+     */
+    private RunJournal openJournal(boolean resumed) {
+        Path path = journalPath();
+        try {
+            return resumed ? RunJournal.append(path) : RunJournal.create(path);
+        } catch (IOException ex) {
+            context.api.logging().logToError("Run journal unavailable, this run cannot be resumed: " + ex.getMessage());
+            return null;
+        }
+    }
+
+    private void closeJournal(RunJournal journal, boolean finished) {
+        if (journal == null) return;
+        try {
+            if (finished) {
+                journal.delete();
+            } else {
+                journal.close();
+            }
+        } catch (IOException ex) {
+            context.api.logging().logToError("Could not close run journal: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Journal for the current Burp project and loaded spec, so Resume never replays another
+     * engagement's requests.
+     */
+    private Path journalPath() {
+        List<String> signature = new ArrayList<>();
+        for (Endpoint ep : context.getEndpoints()) {
+            signature.add(ep.getMethod() + " " + ep.getPath());
+        }
+        Collections.sort(signature);
+        String project;
+        try {
+            project = context.api.project().id();
+        } catch (RuntimeException e) {
+            project = "";
+        }
+        return RunJournal.pathFor(project + "\n" + String.join("\n", signature));
+    }
+
+    private void updateResumeButton() {
+        btnResume.setEnabled(RunJournal.exists(journalPath()));
+    }
+
+    private void showSendSettings() {
+        SendSettings settings = context.getSendSettings();
+
+        JSpinner workers = new JSpinner(new SpinnerNumberModel(
+                settings.getWorkerCount(), 1, SendSettings.MAX_WORKER_COUNT, 1));
+        JCheckBox adaptive = new JCheckBox("Adapt per host to latency and 429/503", settings.isAdaptiveConcurrency());
+
+        SendSettings.HostLimit limit = settings.getDefaultHostLimit();
+        JSpinner rps = new JSpinner(new SpinnerNumberModel(limit.perSecond(), 0.0, 10_000.0, 1.0));
+        JSpinner burst = new JSpinner(new SpinnerNumberModel(limit.burst(), 1, 10_000, 1));
+
+        SendSettings.RetryPolicy retry = settings.getRetryPolicy();
+        JSpinner attempts = new JSpinner(new SpinnerNumberModel(
+                retry.maxAttempts(), 1, SendSettings.RetryPolicy.MAX_ATTEMPTS, 1));
+        JSpinner baseDelay = new JSpinner(new SpinnerNumberModel((int) retry.baseDelayMillis(), 0, 600_000, 100));
+        JSpinner maxDelay = new JSpinner(new SpinnerNumberModel((int) retry.maxDelayMillis(), 0, 600_000, 500));
+        JCheckBox retryConnection = new JCheckBox("Connection errors", retry.retryConnectionErrors());
+        JCheckBox retryGateway = new JCheckBox("502 / 503 / 504", retry.retryGatewayErrors());
+        JCheckBox retryTooMany = new JCheckBox("429 with Retry-After", retry.retryTooManyRequests());
+
+        JTextArea overrides = new JTextArea(SendSettings.formatHostLimitOverrides(settings.getHostLimitOverrides()), 5, 32);
+        overrides.setFont(new Font("Monospaced", Font.PLAIN, 12));
+
+        JPanel form = new JPanel(new GridLayout(0, 2, 8, 4));
+        form.add(new JLabel("Concurrent workers"));
+        form.add(workers);
+        form.add(new JLabel("Adaptive concurrency (workers = ceiling)"));
+        form.add(adaptive);
+        form.add(new JLabel("Requests per second per host (0 = unlimited)"));
+        form.add(rps);
+        form.add(new JLabel("Burst size"));
+        form.add(burst);
+        form.add(new JLabel("Max attempts per request (1 = no retries)"));
+        form.add(attempts);
+        form.add(new JLabel("Retry base delay (ms)"));
+        form.add(baseDelay);
+        form.add(new JLabel("Retry max delay (ms)"));
+        form.add(maxDelay);
+        form.add(new JLabel("Retry on"));
+        form.add(retryConnection);
+        form.add(new JLabel());
+        form.add(retryGateway);
+        form.add(new JLabel());
+        form.add(retryTooMany);
+
+        JPanel panel = new JPanel(new BorderLayout(0, 6));
+        panel.add(form, BorderLayout.NORTH);
+        panel.add(new JLabel("Per-host overrides, one per line: host[:port:scheme] = rps[/burst]"), BorderLayout.CENTER);
+        panel.add(new JScrollPane(overrides), BorderLayout.SOUTH);
+
+        while (true) {
+            int choice = JOptionPane.showConfirmDialog(this, panel, "Send Settings",
+                    JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+            if (choice != JOptionPane.OK_OPTION) return;
+
+            try {
+                settings.setHostLimitOverrides(SendSettings.parseHostLimitOverrides(overrides.getText()));
+            } catch (IllegalArgumentException ex) {
+                JOptionPane.showMessageDialog(this, ex.getMessage(), "Invalid override", JOptionPane.ERROR_MESSAGE);
+                continue;
+            }
+            settings.setWorkerCount((Integer) workers.getValue());
+            settings.setAdaptiveConcurrency(adaptive.isSelected());
+            settings.setRetryPolicy(new SendSettings.RetryPolicy(
+                    (Integer) attempts.getValue(),
+                    (Integer) baseDelay.getValue(),
+                    (Integer) maxDelay.getValue(),
+                    retryConnection.isSelected(),
+                    retryGateway.isSelected(),
+                    retryTooMany.isSelected()));
+            settings.setDefaultHostLimit(new SendSettings.HostLimit(
+                    ((Number) rps.getValue()).doubleValue(), (Integer) burst.getValue()));
+            return;
+        }
+    }
+
+    private void updateCountAndEtaOnEDT(int done, int total, boolean exact, long startNano) {
         runOnEdt(() -> {
-            countLabel.setText(done + " / " + total);
+            countLabel.setText(done + " / " + (exact ? "" : "~") + total);
             long elapsedNanos = System.nanoTime() - startNano;
             long elapsedMs = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
 
@@ -460,46 +668,27 @@ public class EndpointsTab extends JPanel {
         return String.format("%02d:%02d", minutes, seconds);
     }
 
-    private void waitIfPaused() {
-        synchronized (pauseLock) {
-            while (pauseRequested.get() && !stopAfterCurrent.get()) {
-                try {
-                    pauseLock.wait();
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    break;
-                }
-            }
-        }
-    }
-
     private void cancelActiveJob() {
-        if (activeWorker != null && !activeWorker.isDone()) {
-            stopAfterCurrent.set(true);
+        if (activeWorker != null && !activeWorker.isDone() && activeSender != null) {
+            activeSender.stopAfterCurrent();
             btnCancel.setEnabled(false);
             btnPause.setEnabled(false);
-            pauseRequested.set(false);
             statusLabel.setText("Status: Stopping");
-            synchronized (pauseLock) {
-                pauseLock.notifyAll();
-            }
         }
     }
 
     private void togglePause() {
-        if (activeWorker == null || activeWorker.isDone()) {
+        if (activeWorker == null || activeWorker.isDone() || activeSender == null) {
             return;
         }
-        if (pauseRequested.compareAndSet(false, true)) {
+        if (!activeSender.isPaused()) {
+            activeSender.pause();
             btnPause.setText("Resume");
             statusLabel.setText("Status: Paused");
         } else {
-            pauseRequested.set(false);
+            activeSender.resume();
             btnPause.setText("Pause");
             statusLabel.setText("Status: Running");
-            synchronized (pauseLock) {
-                pauseLock.notifyAll();
-            }
         }
     }
 
@@ -1,9 +1,12 @@
 package com.specops.ui;
 
 import burp.api.montoya.core.ByteArray;
+import com.specops.ChangeBus;
+import com.specops.ParameterTransaction;
 import com.specops.SpecOpsContext;
 import com.specops.domain.Parameter;
 import com.specops.services.request.ValueGenerator;
+import com.specops.services.scanner.LiveHarvester;
 import com.specops.services.scanner.ProxyScanner;
 import com.specops.ui.models.ParameterTableModel;
 
@@ -50,6 +53,8 @@ public class ParameterStoreTab extends JPanel {
     private static final int LOCK_COL   = 6;
 
     private final SpecOpsContext context;
+    private final ProxyScanner proxyScanner;
+    private final LiveHarvester liveHarvester;
     private final ParameterTableModel tableModel;
     private final JTable parameterTable;
     private final TableRowSorter<ParameterTableModel> sorter;
@@ -58,6 +63,7 @@ public class ParameterStoreTab extends JPanel {
     private Action copyCellAction;
     private Action pasteCellAction;
     private JButton populateFromProxyButton;
+    private JCheckBox liveHarvestCheckBox;
     private JButton generateValuesButton;
     private JButton importValuesButton;
     private JButton exportValuesButton;
@@ -72,6 +78,8 @@ public class ParameterStoreTab extends JPanel {
 
     public ParameterStoreTab(SpecOpsContext context) {
         this.context = context;
+        this.proxyScanner = new ProxyScanner(context);
+        this.liveHarvester = new LiveHarvester(context);
 
         setLayout(new BorderLayout(5, 5));
         setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
@@ -129,6 +137,11 @@ public class ParameterStoreTab extends JPanel {
         populateFromProxyButton.addActionListener(e -> populateFromProxy());
         buttonPanel.add(populateFromProxyButton);
 
+        liveHarvestCheckBox = new JCheckBox("Live harvest");
+        liveHarvestCheckBox.setToolTipText("Fill parameters from Proxy traffic as it passes");
+        liveHarvestCheckBox.addActionListener(e -> toggleLiveHarvest());
+        buttonPanel.add(liveHarvestCheckBox);
+
         generateValuesButton = createGenerateValuesButton();
         buttonPanel.add(generateValuesButton);
 
@@ -174,8 +187,12 @@ public class ParameterStoreTab extends JPanel {
         setupFilterListener();
 
         // Refresh UI when parameter store changes
-        context.setParametersUpdateListener(v ->
-                javax.swing.SwingUtilities.invokeLater(this::refreshData));
+        // Rows hold the stored instances, so in-place edits only need a repaint
+        context.getChangeBus().subscribe(changes -> {
+            if (!changes.has(ChangeBus.Topic.PARAMETERS)) return;
+            if (changes.parameterKeySetChanged()) refreshData();
+            else parameterTable.repaint();
+        });
     }
 
     private void applySortKeys(boolean groupByName) {
@@ -298,8 +315,10 @@ public class ParameterStoreTab extends JPanel {
             return;
         }
 
+        // Later scans of a domain only read history added since; this reads it all again
+        JCheckBox fullRescan = new JCheckBox("Rescan entire history");
         String domain = JOptionPane.showInputDialog(this,
-                "Enter the target domain to scan from Proxy history, e.g. api.example.com",
+                new Object[]{"Enter the target domain to scan from Proxy history, e.g. api.example.com", fullRescan},
                 "Populate from Proxy",
                 JOptionPane.PLAIN_MESSAGE);
 
@@ -308,8 +327,7 @@ public class ParameterStoreTab extends JPanel {
             new SwingWorker<Integer, Void>() {
                 @Override
                 protected Integer doInBackground() {
-                    ProxyScanner scanner = new ProxyScanner(context);
-                    return scanner.scanAndPopulate(domain.trim());
+                    return proxyScanner.scanAndPopulate(domain.trim(), fullRescan.isSelected());
                 }
 
                 @Override
@@ -321,7 +339,6 @@ public class ParameterStoreTab extends JPanel {
                         JOptionPane.showMessageDialog(ParameterStoreTab.this,
                                 "Scan complete. Updated " + updatedCount + " parameter values.",
                                 "Success", JOptionPane.INFORMATION_MESSAGE);
-                        emitChanged();
                     } catch (Exception e) {
                         context.api.logging().logToError("Error during proxy scan: " + e.getMessage());
                         JOptionPane.showMessageDialog(ParameterStoreTab.this,
@@ -332,6 +349,22 @@ public class ParameterStoreTab extends JPanel {
         }
     }
 
+    private void toggleLiveHarvest() {
+        if (!liveHarvestCheckBox.isSelected()) {
+            liveHarvester.stop();
+            return;
+        }
+        String domain = JOptionPane.showInputDialog(this,
+                "Enter the target domain to harvest from Proxy traffic, e.g. api.example.com",
+                "Live Harvest",
+                JOptionPane.PLAIN_MESSAGE);
+        if (domain == null || domain.trim().isEmpty()) {
+            liveHarvestCheckBox.setSelected(false);
+            return;
+        }
+        liveHarvester.start(domain.trim());
+    }
+
     private void generateValues(String typeFilter) {
         if (parameterMutationsBlocked) {
             JOptionPane.showMessageDialog(this,
@@ -347,7 +380,11 @@ public class ParameterStoreTab extends JPanel {
         new SwingWorker<Integer, Void>() {
             @Override
             protected Integer doInBackground() {
-                return ValueGenerator.generateValues(context.getGlobalParameterStore(), typeFilter);
+                try (ParameterTransaction tx = context.beginParameterTransaction()) {
+                    int count = ValueGenerator.generateValues(context.getGlobalParameterStore(), tx, typeFilter);
+                    tx.commit();
+                    return count;
+                }
             }
 
             @Override
@@ -360,7 +397,6 @@ public class ParameterStoreTab extends JPanel {
                     JOptionPane.showMessageDialog(ParameterStoreTab.this,
                             "Generated values for " + count + " parameters.",
                             "Generation Complete", JOptionPane.INFORMATION_MESSAGE);
-                    emitChanged();
                 } catch (InterruptedException ex) {
                     Thread.currentThread().interrupt();
                     context.api.logging().logToError("Value generation interrupted: " + ex.getMessage());
@@ -506,12 +542,18 @@ public class ParameterStoreTab extends JPanel {
         new SwingWorker<Integer, Void>() {
             @Override
             protected Integer doInBackground() throws Exception {
-                if (lower.endsWith(".csv")) {
-                    return importCsv(path);
+                try (ParameterTransaction tx = context.beginParameterTransaction()) {
+                    int count;
+                    if (lower.endsWith(".csv")) {
+                        count = importCsv(path, tx);
+                    } else {
+                        byte[] bytes = Files.readAllBytes(path);
+                        ByteArray content = ByteArray.byteArray(bytes);
+                        count = ValueGenerator.importValues(context.getGlobalParameterStore(), tx, content);
+                    }
+                    tx.commit();
+                    return count;
                 }
-                byte[] bytes = Files.readAllBytes(path);
-                ByteArray content = ByteArray.byteArray(bytes);
-                return ValueGenerator.importValues(context.getGlobalParameterStore(), content);
             }
 
             @Override
@@ -526,7 +568,6 @@ public class ParameterStoreTab extends JPanel {
                     JOptionPane.showMessageDialog(ParameterStoreTab.this,
                             "Successfully imported " + count + " parameter values.",
                             "Import Successful", JOptionPane.INFORMATION_MESSAGE);
-                    emitChanged();
                     parameterTable.requestFocusInWindow();
                 } catch (InterruptedException ex) {
                     Thread.currentThread().interrupt();
@@ -752,7 +793,7 @@ public class ParameterStoreTab extends JPanel {
         return copy;
     }
 
-    private int importCsv(Path path) throws IOException {
+    private int importCsv(Path path, ParameterTransaction tx) throws IOException {
         Map<String, Parameter> store = context.getGlobalParameterStore();
         List<Map<String, String>> rows = readCsv(path);
 
@@ -773,17 +814,21 @@ public class ParameterStoreTab extends JPanel {
 
             boolean updatedAny = false;
 
-            for (Parameter existing : store.values()) {
-                if (existing == null) continue;
+            // With a known location the index answers directly; otherwise match the name in any location
+            Collection<Parameter> candidates = inCsv.isEmpty()
+                    ? store.values()
+                    : context.getParameterIndex().findAll(inCsv, matchName);
 
-                boolean inMatch = inCsv.isEmpty()
-                        || (existing.getIn() != null && existing.getIn().equalsIgnoreCase(inCsv));
-                if (!inMatch) continue;
+            for (Parameter live : candidates) {
+                if (live == null) continue;
+                Parameter existing = tx.current(live);
 
                 boolean nameMatch = existing.getName() != null
                         && existing.getName().equalsIgnoreCase(matchName);
                 if (!nameMatch) continue;
 
+                existing = tx.edit(live);
+
                 // update lock state if provided
                 if (!lockedS.isEmpty()) {
                     boolean toLock = parseBool(lockedS);
@@ -827,9 +872,7 @@ public class ParameterStoreTab extends JPanel {
                 }
 
                 p.setSource(Parameter.ValueSource.IMPORTED);
-                // rely on Parameter#getUniqueKey() to normalize body keys (jsonPath)
-                String k = com.specops.SpecOpsContext.canonicalKey(p);
-                store.put(k, p);
+                tx.put(p);
             }
         }
 
@@ -1025,16 +1068,18 @@ public class ParameterStoreTab extends JPanel {
 
         commitEditsIfAny();
         int cleared = 0;
-        for (Parameter p : context.getGlobalParameterStore().values()) {
-            if (!p.isLocked() && p.getValue() != null && !p.getValue().isEmpty()) {
-                p.setValue("");
-                cleared++;
+        try (ParameterTransaction tx = context.beginParameterTransaction()) {
+            for (Parameter p : context.getGlobalParameterStore().values()) {
+                if (!p.isLocked() && p.getValue() != null && !p.getValue().isEmpty()) {
+                    tx.edit(p).setValue("");
+                    cleared++;
+                }
             }
+            tx.commit();
         }
         refreshData();
         JOptionPane.showMessageDialog(this,
                 "Cleared " + cleared + " parameter values.",
                 "Clear Complete", JOptionPane.INFORMATION_MESSAGE);
-        emitChanged();
     }
 }
@@ -59,6 +59,8 @@ public class ResultsTab extends JPanel {
         resultsTable.getColumnModel().getColumn(2).setPreferredWidth(350); // Path
         resultsTable.getColumnModel().getColumn(3).setPreferredWidth(100); // Status Code
         resultsTable.getColumnModel().getColumn(4).setPreferredWidth(120); // Length
+        resultsTable.getColumnModel().getColumn(5).setPreferredWidth(80);  // Time
+        resultsTable.getColumnModel().getColumn(6).setPreferredWidth(70);  // Attempts
 
         addRightClickMenu();
 
@@ -1,5 +1,6 @@
 package com.specops.ui;
 
+import com.specops.ChangeBus;
 import com.specops.SpecOpsContext;
 import io.swagger.v3.oas.models.OpenAPI;
 import io.swagger.v3.oas.models.servers.Server;
@@ -72,13 +73,19 @@ public class ServersPanel extends JPanel {
         reloadVariables();
         updateResolvedBadge();
 
-        context.setServersUpdateListener(_void -> SwingUtilities.invokeLater(() -> {
-            loadServersIntoCombo();
-            selectInitialServerIndex();
-            installEnumEditors();
-            reloadVariables();
-            updateResolvedBadge();
-        }));
+        // Reload the combo only for a new spec: repopulating it fires its action listener,
+        // which selects a server and would post another server change
+        context.getChangeBus().subscribe(changes -> {
+            if (changes.has(ChangeBus.Topic.SPEC)) {
+                loadServersIntoCombo();
+                selectInitialServerIndex();
+                installEnumEditors();
+                reloadVariables();
+                updateResolvedBadge();
+            } else if (changes.has(ChangeBus.Topic.SERVERS)) {
+                updateResolvedBadge();
+            }
+        });
     }
 
     private JPanel resolvedPanel() {
@@ -3,10 +3,16 @@ package com.specops.ui.models;
 import com.specops.SpecOpsContext;
 import com.specops.domain.Endpoint;
 import com.specops.domain.Parameter;
-import io.swagger.v3.oas.models.parameters.RequestBody;
 
 import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * A custom TableModel for displaying Endpoint objects in the Endpoints Workbench JTable.
@@ -16,6 +22,12 @@ public class EndpointTableModel extends AbstractTableModel {
     private final SpecOpsContext context;
     private final String[] columnNames = {"Method", "Path", "Summary", "Binding Status"};
 
+    // Canonical keys of each endpoint's required parameters, by row, and the reverse mapping,
+    // so a parameter edit re-evaluates only the endpoints that depend on it. EDT only.
+    private String[][] requiredKeys = new String[0][];
+    private Map<String, int[]> dependents = Map.of();
+    private long indexedSpecVersion = -1;
+
     public EndpointTableModel(SpecOpsContext context) {
         this.context = context;
     }
@@ -52,53 +64,95 @@ public class EndpointTableModel extends AbstractTableModel {
         }
     }
 
+    /** Re-evaluates every endpoint; the caller fires the table change. */
     public void recalculateBindingStatus() {
         Map<String, Parameter> paramStore = context.getGlobalParameterStore();
         if (paramStore == null || paramStore.isEmpty()) return;
 
-        for (Endpoint endpoint : context.getEndpoints()) {
-            boolean allRequiredMet = true;
+        List<Endpoint> endpoints = context.getEndpoints();
+        ensureDependencyIndex(endpoints);
+        for (int row = 0; row < endpoints.size() && row < requiredKeys.length; row++) {
+            endpoints.get(row).setBindingStatus(evaluate(row, paramStore));
+        }
+    }
 
-            // Check all required parameters from path and operation
-            for (io.swagger.v3.oas.models.parameters.Parameter specParam
-                    : endpoint.getAllParameters(context.getOpenAPI())) {
-                if (Boolean.TRUE.equals(specParam.getRequired())) {
-                    // Use canonical key "in:name" in lowercase
-                    String key = com.specops.SpecOpsContext.canonicalKey(
-                            new com.specops.domain.Parameter(
-                                    specParam.getName(),
-                                    specParam.getIn(),
-                                    null
-                            )
-                    );
-
-                    Parameter stored = paramStore.get(key);
-                    if (stored == null) {
-                        allRequiredMet = false;
-                        break;
-                    }
-                    String val = stored.getValue();
-                    if (val == null || val.isEmpty()) {
-                        allRequiredMet = false;
-                        break;
-                    }
+    /**
+     * Re-evaluates only the endpoints that require one of the given canonical keys,
+     * and fires one update spanning the rows whose status changed.
+     */
+    public void recalculateBindingStatus(Collection<String> changedKeys) {
+        Map<String, Parameter> paramStore = context.getGlobalParameterStore();
+        if (paramStore == null || paramStore.isEmpty()) return;
+
+        List<Endpoint> endpoints = context.getEndpoints();
+        if (!ensureDependencyIndex(endpoints)) {
+            recalculateBindingStatus();
+            fireTableDataChanged();
+            return;
+        }
+        // A batch such as an import names many keys an endpoint shares; evaluate each row once
+        BitSet evaluated = new BitSet(endpoints.size());
+        int firstChanged = Integer.MAX_VALUE;
+        int lastChanged = -1;
+        for (String key : changedKeys) {
+            int[] rows = dependents.get(key);
+            if (rows == null) continue;
+            for (int row : rows) {
+                if (row >= endpoints.size() || evaluated.get(row)) continue;
+                evaluated.set(row);
+                Endpoint endpoint = endpoints.get(row);
+                Endpoint.BindingStatus status = evaluate(row, paramStore);
+                if (status != endpoint.getBindingStatus()) {
+                    endpoint.setBindingStatus(status);
+                    firstChanged = Math.min(firstChanged, row);
+                    lastChanged = Math.max(lastChanged, row);
                 }
             }
+        }
+        if (lastChanged >= 0) fireTableRowsUpdated(firstChanged, lastChanged);
+    }
 
-            io.swagger.v3.oas.models.parameters.RequestBody requestBody =
-                    endpoint.getOperation().getRequestBody();
-
-            if (allRequiredMet && requestBody != null
-                    && Boolean.TRUE.equals(requestBody.getRequired())) {
-                // For now we treat body as satisfiable when other required inputs are present
-                endpoint.setBindingStatus(Endpoint.BindingStatus.READY);
-            } else if (allRequiredMet) {
-                endpoint.setBindingStatus(Endpoint.BindingStatus.READY);
-            } else {
-                endpoint.setBindingStatus(Endpoint.BindingStatus.MISSING_REQUIRED);
-            }
+    private Endpoint.BindingStatus evaluate(int row, Map<String, Parameter> paramStore) {
+        // The request body is treated as satisfiable when the other required inputs are present
+        for (String key : requiredKeys[row]) {
+            Parameter stored = paramStore.get(key);
+            String val = stored == null ? null : stored.getValue();
+            if (val == null || val.isEmpty()) return Endpoint.BindingStatus.MISSING_REQUIRED;
         }
+        return Endpoint.BindingStatus.READY;
     }
 
+    /**
+     * Rebuilds the required-key index when a new spec was loaded.
+     *
+     * @return true when the index was already current
+     */
+    private boolean ensureDependencyIndex(List<Endpoint> endpoints) {
+        long specVersion = context.getSpecVersion();
+        if (indexedSpecVersion == specVersion && requiredKeys.length == endpoints.size()) return true;
+
+        String[][] keysByRow = new String[endpoints.size()][];
+        Map<String, List<Integer>> rowsByKey = new HashMap<>();
+        for (int row = 0; row < keysByRow.length; row++) {
+            Set<String> keys = new LinkedHashSet<>();
+            for (io.swagger.v3.oas.models.parameters.Parameter specParam
+                    : endpoints.get(row).getAllParameters(context.getOpenAPI())) {
+                if (Boolean.TRUE.equals(specParam.getRequired())) {
+                    keys.add(SpecOpsContext.canonicalKey(
+                            new Parameter(specParam.getName(), specParam.getIn(), null)));
+                }
+            }
+            keysByRow[row] = keys.toArray(new String[0]);
+            for (String key : keys) {
+                rowsByKey.computeIfAbsent(key, k -> new ArrayList<>()).add(row);
+            }
+        }
 
-}
\ No newline at end of file
+        Map<String, int[]> index = new HashMap<>(rowsByKey.size() * 2);
+        rowsByKey.forEach((key, rows) -> index.put(key, rows.stream().mapToInt(Integer::intValue).toArray()));
+        requiredKeys = keysByRow;
+        dependents = index;
+        indexedSpecVersion = specVersion;
+        return false;
+    }
+}
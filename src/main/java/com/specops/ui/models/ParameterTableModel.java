@@ -97,7 +97,7 @@ public class ParameterTableModel extends AbstractTableModel {
                     p.setValue(v);
                     p.setSource(Parameter.ValueSource.USER);
                     fireTableCellUpdated(rowIndex, columnIndex);
-                    context.notifyParametersChanged();
+                    context.notifyParametersChanged(List.of(SpecOpsContext.canonicalKey(p)));
                 }
                 break;
             }
@@ -105,7 +105,7 @@ public class ParameterTableModel extends AbstractTableModel {
                 boolean lock = (aValue instanceof Boolean) && (Boolean) aValue;
                 p.setLocked(lock);
                 fireTableCellUpdated(rowIndex, columnIndex);
-                context.notifyParametersChanged();
+                context.notifyParametersChanged(List.of(SpecOpsContext.canonicalKey(p)));
                 break;
             }
             default:
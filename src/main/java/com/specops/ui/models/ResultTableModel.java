@@ -11,7 +11,7 @@ import javax.swing.table.AbstractTableModel;
 public class ResultTableModel extends AbstractTableModel {
 
     private final SpecOpsContext context;
-    private final String[] columnNames = {"Timestamp", "Method", "Path", "Status Code", "Response Length"};
+    private final String[] columnNames = {"Timestamp", "Method", "Path", "Status Code", "Response Length", "Time (ms)", "Attempts"};
 
     public ResultTableModel(SpecOpsContext context) {
         this.context = context;
@@ -38,6 +38,12 @@ public class ResultTableModel extends AbstractTableModel {
         if (columnIndex == 3 || columnIndex == 4) {
             return Integer.class;
         }
+        if (columnIndex == 5) {
+            return Long.class;
+        }
+        if (columnIndex == 6) {
+            return Integer.class;
+        }
         return String.class;
     }
 
@@ -58,6 +64,10 @@ public class ResultTableModel extends AbstractTableModel {
                 return (int) result.getStatusCode();
             case 4:
                 return result.getResponseLength();
+            case 5:
+                return result.getResponseTimeMillis();
+            case 6:
+                return result.getAttempts();
             default:
                 return null;
         }